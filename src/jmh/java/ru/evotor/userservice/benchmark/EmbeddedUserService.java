@@ -0,0 +1,69 @@
+package ru.evotor.userservice.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.evotor.userservice.UserServiceApplication;
+
+import java.io.IOException;
+
+public class EmbeddedUserService implements AutoCloseable {
+
+    /**
+     * Seeds the ids 1..users, which the load scenarios pick from. The ids of the sequence have gaps of its
+     * increment, so the sample users of the changelog are replaced and the sequence is moved past the seed.
+     */
+    private static final String SEED_USERS_SQL =
+            "insert into users(id, first_name, last_name, patronymic, date_of_birth) " +
+            "select g, 'First' || (g % 2000), 'Last' || (g % 20000), 'Patronymic' || (g % 1000), " +
+            "date '1940-01-01' + (g % 25000) " +
+            "from generate_series(1, ?) g";
+
+    private final EmbeddedPostgres postgres;
+
+    private final ConfigurableApplicationContext context;
+
+    private EmbeddedUserService(EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    public static EmbeddedUserService start(int users, String... properties) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.start();
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .properties(
+                        "spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "spring.datasource.username=postgres",
+                        "spring.datasource.password=",
+                        "user-service.r2dbc.url=r2dbc:postgresql://localhost:" + postgres.getPort() + "/postgres",
+                        "spring.jpa.show-sql=false",
+                        "server.port=0",
+                        "logging.level.root=WARN")
+                .properties(properties)
+                .run();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("delete from users");
+        jdbcTemplate.update(SEED_USERS_SQL, users);
+        jdbcTemplate.queryForObject("select setval('users_id_seq', ?)", Long.class, users);
+        jdbcTemplate.execute("analyze users");
+
+        return new EmbeddedUserService(postgres, context);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public int getPort() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        postgres.close();
+    }
+}
@@ -0,0 +1,87 @@
+package ru.evotor.userservice.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.StringJoiner;
+
+/**
+ * Requests {@link UserLoadTest} can send, named as in {@code load.rates}. Parameters are drawn from the
+ * data {@link EmbeddedUserService} seeds, so the searches find users.
+ */
+enum LoadScenario {
+    FIND_BY_ID("find-by-id") {
+        @Override
+        HttpRequest.Builder request(String baseUrl, int users, Random random) {
+            return get(baseUrl + "/find?id=" + randomId(users, random));
+        }
+    },
+    FIND_BATCH("find-batch") {
+        @Override
+        HttpRequest.Builder request(String baseUrl, int users, Random random) {
+            StringJoiner ids = new StringJoiner(",", "[", "]");
+            for (int i = 0; i < 20; i++) {
+                ids.add(String.valueOf(randomId(users, random)));
+            }
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/find/batch"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(ids.toString()));
+        }
+    },
+    FIND_BY_FULL_NAME("find-by-full-name") {
+        @Override
+        HttpRequest.Builder request(String baseUrl, int users, Random random) {
+            long seed = randomId(users, random);
+            return get(baseUrl + "/find/full-name?firstName=First" + seed % 2000 + "&lastName=Last" + seed % 20000);
+        }
+    },
+    FIND_BY_DATE_OF_BIRTH("find-by-date-of-birth") {
+        @Override
+        HttpRequest.Builder request(String baseUrl, int users, Random random) {
+            LocalDate dateFrom = LocalDate.of(1940, 1, 1).plusDays(random.nextInt(25000));
+            return get(baseUrl + "/find/date-of-birth?dateFrom=" + dateFrom + "&dateTo=" + dateFrom.plusDays(6));
+        }
+    },
+    PAGE("page") {
+        @Override
+        HttpRequest.Builder request(String baseUrl, int users, Random random) {
+            return get(baseUrl + "?afterId=" + random.nextInt(users) + "&limit=20");
+        }
+    },
+    SEARCH("search") {
+        @Override
+        HttpRequest.Builder request(String baseUrl, int users, Random random) {
+            return get(baseUrl + "/search?q=last" + randomId(users, random) % 20000);
+        }
+    };
+
+    private final String scenarioName;
+
+    LoadScenario(String scenarioName) {
+        this.scenarioName = scenarioName;
+    }
+
+    abstract HttpRequest.Builder request(String baseUrl, int users, Random random);
+
+    String scenarioName() {
+        return scenarioName;
+    }
+
+    static LoadScenario of(String scenarioName) {
+        for (LoadScenario scenario : values()) {
+            if (scenario.scenarioName.equals(scenarioName)) {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException("Unknown load scenario: " + scenarioName);
+    }
+
+    private static long randomId(int users, Random random) {
+        return 1 + random.nextInt(users);
+    }
+
+    private static HttpRequest.Builder get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).GET();
+    }
+}
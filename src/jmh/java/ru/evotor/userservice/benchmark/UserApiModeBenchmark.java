@@ -0,0 +1,103 @@
+package ru.evotor.userservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the servlet and the reactive runtime modes on the same embedded database. Each mode keeps
+ * {@code concurrency} requests in flight and the score is the rate at which they complete, so it
+ * shows how throughput holds up once concurrency exceeds the 10 database connections both modes get.
+ * Caches and in-memory indexes are bypassed, so every request reaches the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class UserApiModeBenchmark {
+
+    /**
+     * Web application type, also used as the profile name so {@code application-reactive.properties} applies.
+     */
+    @Param({"servlet", "reactive"})
+    private String mode;
+
+    @Param({"64", "512", "2048"})
+    private int concurrency;
+
+    @Param({"100000"})
+    private int users;
+
+    private EmbeddedUserService embeddedUserService;
+
+    private HttpClient httpClient;
+
+    private Semaphore inFlight;
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private String baseUrl;
+
+    @Setup
+    public void setUp() throws IOException {
+        embeddedUserService = EmbeddedUserService.start(users,
+                "spring.main.web-application-type=" + mode,
+                "spring.profiles.active=" + mode,
+                "spring.datasource.hikari.maximum-pool-size=10",
+                "spring.cache.type=none",
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+                "user-service.index.name.enabled=false",
+                "user-service.index.date-of-birth.enabled=false");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        inFlight = new Semaphore(concurrency);
+        baseUrl = "http://localhost:" + embeddedUserService.getPort() + "/user";
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        inFlight.tryAcquire(concurrency, 1, TimeUnit.MINUTES);
+        embeddedUserService.close();
+
+        if (failures.get() > 0) {
+            throw new IllegalStateException(failures.get() + " requests failed");
+        }
+    }
+
+    @Benchmark
+    public void getUsersPage() throws InterruptedException {
+        long afterId = ThreadLocalRandom.current().nextLong(users);
+        send(HttpRequest.newBuilder(URI.create(baseUrl + "?afterId=" + afterId + "&limit=20")).GET().build());
+    }
+
+    @Benchmark
+    public void getUsersByFullNameParts() throws InterruptedException {
+        int name = ThreadLocalRandom.current().nextInt(2000);
+        send(HttpRequest.newBuilder(URI.create(baseUrl + "/find/full-name"))
+                .header("Content-Type", "application/json")
+                .method("GET", HttpRequest.BodyPublishers.ofString(
+                        "{\"firstName\":\"First" + name + "\",\"lastName\":\"Last" + name + "\"}"))
+                .build());
+    }
+
+    private void send(HttpRequest request) throws InterruptedException {
+        inFlight.acquire();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, e) -> {
+                    if (e != null || response.statusCode() != 200) {
+                        failures.incrementAndGet();
+                    }
+                    inFlight.release();
+                });
+    }
+}
@@ -0,0 +1,79 @@
+package ru.evotor.userservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserControllerBenchmark {
+
+    @Param({"100000"})
+    private int users;
+
+    private EmbeddedUserService embeddedUserService;
+
+    private HttpClient httpClient;
+
+    private HttpRequest findById;
+
+    private HttpRequest findByFullName;
+
+    private HttpRequest findByDateOfBirth;
+
+    @Setup
+    public void setUp() throws IOException {
+        embeddedUserService = EmbeddedUserService.start(users);
+        httpClient = HttpClient.newHttpClient();
+
+        String baseUrl = "http://localhost:" + embeddedUserService.getPort() + "/user";
+        findById = HttpRequest.newBuilder(URI.create(baseUrl + "/find?id=42")).GET().build();
+        findByFullName = jsonGet(baseUrl + "/find/full-name", "{\"firstName\":\"First42\",\"lastName\":\"Last42\"}");
+        findByDateOfBirth = jsonGet(baseUrl + "/find/date-of-birth",
+                "{\"dateFrom\":\"1970-01-01\",\"dateTo\":\"1970-12-31\"}");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        embeddedUserService.close();
+    }
+
+    @Benchmark
+    public String getUserById() throws IOException, InterruptedException {
+        return send(findById);
+    }
+
+    @Benchmark
+    public String getUsersByFullNameParts() throws IOException, InterruptedException {
+        return send(findByFullName);
+    }
+
+    @Benchmark
+    public String getUsersByDateOfBirth() throws IOException, InterruptedException {
+        return send(findByDateOfBirth);
+    }
+
+    private String send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static HttpRequest jsonGet(String url, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .method("GET", HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
@@ -0,0 +1,245 @@
+package ru.evotor.userservice.benchmark;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load test. Boots the service on an embedded database seeded with {@code load.users} users and
+ * sends the requests of each scenario at a fixed rate, however slowly the service answers. Latency is
+ * measured from the time a request was due, not from the time it was actually sent, so a stalled service
+ * or generator shows up in the percentiles instead of quietly lowering the rate (coordinated omission).
+ * <p>
+ * Settings are system properties, which {@code ./gradlew loadTest -Pload.<name>=<value>} passes on:
+ * <ul>
+ *     <li>{@code load.rates} - requests per second of each {@link LoadScenario}, e.g. {@code find-by-id=400,search=50}</li>
+ *     <li>{@code load.users} - users to seed</li>
+ *     <li>{@code load.warmup-seconds} and {@code load.duration-seconds} - results of the warmup are dropped</li>
+ *     <li>{@code load.mode} - {@code servlet} or {@code reactive}</li>
+ *     <li>{@code load.max-in-flight} - requests due while this many are unanswered are counted as dropped</li>
+ *     <li>{@code load.report-dir} - where the reports are written</li>
+ * </ul>
+ * The report directory gets {@code latency.hlog} with per-second interval histograms tagged by scenario,
+ * a percentile distribution {@code <scenario>.hgrm} per scenario, both in milliseconds when plotted, and
+ * {@code summary.txt} with throughput and p50/p90/p99/p99.9 of every scenario.
+ */
+public class UserLoadTest {
+
+    private static final String DEFAULT_RATES =
+            "find-by-id=400,find-batch=50,find-by-full-name=100,find-by-date-of-birth=50,page=50,search=50";
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final String baseUrl;
+
+    private final int users;
+
+    private final int maxInFlight;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final List<ScenarioRun> runs = new ArrayList<>();
+
+    private UserLoadTest(String baseUrl, int users, int maxInFlight, String rates) {
+        this.baseUrl = baseUrl;
+        this.users = users;
+        this.maxInFlight = maxInFlight;
+        for (String rate : rates.split(",")) {
+            String[] scenarioAndRate = rate.strip().split("=");
+            if (scenarioAndRate.length != 2) {
+                throw new IllegalArgumentException("Rate must be <scenario>=<requests per second>: " + rate);
+            }
+            runs.add(new ScenarioRun(LoadScenario.of(scenarioAndRate[0].strip()),
+                    Integer.parseInt(scenarioAndRate[1].strip())));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("load.users", 100_000);
+        int warmupSeconds = Integer.getInteger("load.warmup-seconds", 10);
+        int durationSeconds = Integer.getInteger("load.duration-seconds", 60);
+        String mode = System.getProperty("load.mode", "servlet");
+        Path reportDir = Path.of(System.getProperty("load.report-dir", "build/reports/load-test"));
+
+        try (EmbeddedUserService embeddedUserService = EmbeddedUserService.start(users,
+                "spring.main.web-application-type=" + mode,
+                "spring.profiles.active=" + mode)) {
+            UserLoadTest loadTest = new UserLoadTest(
+                    "http://localhost:" + embeddedUserService.getPort() + "/user", users,
+                    Integer.getInteger("load.max-in-flight", 10_000),
+                    System.getProperty("load.rates", DEFAULT_RATES));
+            loadTest.run(warmupSeconds, durationSeconds, reportDir);
+        }
+    }
+
+    private void run(int warmupSeconds, int durationSeconds, Path reportDir) throws IOException, InterruptedException {
+        Files.createDirectories(reportDir);
+        try (PrintStream log = new PrintStream(Files.newOutputStream(reportDir.resolve("latency.hlog")))) {
+            HistogramLogWriter logWriter = new HistogramLogWriter(log);
+            long startMillis = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            long endNanos = startNanos + TimeUnit.SECONDS.toNanos(warmupSeconds + durationSeconds);
+            logWriter.outputLogFormatVersion();
+            logWriter.outputStartTime(startMillis);
+            logWriter.setBaseTime(startMillis);
+            logWriter.outputLegend();
+
+            List<Thread> pacers = new ArrayList<>(runs.size());
+            for (ScenarioRun run : runs) {
+                Thread pacer = new Thread(() -> pace(run, startNanos, endNanos), "load-" + run.scenario.scenarioName());
+                pacer.setDaemon(true);
+                pacer.start();
+                pacers.add(pacer);
+            }
+
+            ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+            AtomicInteger elapsedSeconds = new AtomicInteger();
+            reporter.scheduleAtFixedRate(
+                    () -> collectInterval(logWriter, elapsedSeconds.incrementAndGet() > warmupSeconds),
+                    1, 1, TimeUnit.SECONDS);
+
+            for (Thread pacer : pacers) {
+                pacer.join();
+            }
+            long drainDeadline = System.nanoTime() + REQUEST_TIMEOUT.toNanos();
+            while (inFlight.get() > 0 && System.nanoTime() - drainDeadline < 0) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            reporter.shutdown();
+            reporter.awaitTermination(1, TimeUnit.MINUTES);
+            collectInterval(logWriter, true);
+        }
+
+        writeReports(durationSeconds, reportDir);
+    }
+
+    /**
+     * Sends the n-th request of the scenario at {@code start + n / rate}. A request that is late because the
+     * previous sends took too long is sent at once, and its latency still counts from the time it was due.
+     */
+    private void pace(ScenarioRun run, long startNanos, long endNanos) {
+        Random random = ThreadLocalRandom.current();
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / run.rate;
+        for (long n = 0; ; n++) {
+            long dueNanos = startNanos + n * periodNanos;
+            if (dueNanos - endNanos >= 0) {
+                return;
+            }
+            long delay;
+            while ((delay = dueNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            send(run, run.scenario.request(baseUrl, users, random), dueNanos);
+        }
+    }
+
+    private void send(ScenarioRun run, HttpRequest.Builder request, long dueNanos) {
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            run.dropped.incrementAndGet();
+            return;
+        }
+
+        httpClient.sendAsync(request.timeout(REQUEST_TIMEOUT).build(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, e) -> {
+                    long latencyNanos = System.nanoTime() - dueNanos;
+                    inFlight.decrementAndGet();
+                    if (e == null && response.statusCode() < 400) {
+                        run.recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+                    } else {
+                        run.errors.incrementAndGet();
+                    }
+                });
+    }
+
+    /**
+     * Takes the histograms and counters of the last interval of every scenario, and adds them to the totals
+     * and the log once the warmup is over.
+     */
+    private void collectInterval(HistogramLogWriter logWriter, boolean measuring) {
+        for (ScenarioRun run : runs) {
+            Histogram interval = run.recorder.getIntervalHistogram();
+            long errors = run.errors.getAndSet(0);
+            long dropped = run.dropped.getAndSet(0);
+            if (measuring) {
+                interval.setTag(run.scenario.scenarioName());
+                logWriter.outputIntervalHistogram(
+                        (interval.getStartTimeStamp() - logWriter.getBaseTime()) / 1000.0,
+                        (interval.getEndTimeStamp() - logWriter.getBaseTime()) / 1000.0,
+                        interval, MICROS_PER_MILLI);
+                run.total.add(interval);
+                run.totalErrors += errors;
+                run.totalDropped += dropped;
+            }
+        }
+    }
+
+    private void writeReports(int durationSeconds, Path reportDir) throws IOException {
+        StringBuilder summary = new StringBuilder(String.format("%-22s %9s %10s %8s %8s %9s %9s %9s %9s %9s%n",
+                "scenario", "target/s", "achieved/s", "errors", "dropped",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (ScenarioRun run : runs) {
+            Histogram total = run.total;
+            summary.append(String.format("%-22s %9d %10.1f %8d %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    run.scenario.scenarioName(), run.rate, (double) total.getTotalCount() / durationSeconds,
+                    run.totalErrors, run.totalDropped,
+                    millis(total, 50), millis(total, 90), millis(total, 99), millis(total, 99.9),
+                    total.getMaxValue() / MICROS_PER_MILLI));
+
+            try (PrintStream distribution = new PrintStream(
+                    Files.newOutputStream(reportDir.resolve(run.scenario.scenarioName() + ".hgrm")))) {
+                total.outputPercentileDistribution(distribution, MICROS_PER_MILLI);
+            }
+        }
+
+        Files.writeString(reportDir.resolve("summary.txt"), summary);
+        System.out.print(summary);
+        System.out.println("Reports are written to " + reportDir.toAbsolutePath());
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    private static class ScenarioRun {
+        private final LoadScenario scenario;
+        private final int rate;
+        private final Recorder recorder = new Recorder(3);
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final Histogram total = new Histogram(3);
+        private long totalErrors;
+        private long totalDropped;
+
+        ScenarioRun(LoadScenario scenario, int rate) {
+            if (rate < 1) {
+                throw new IllegalArgumentException("Rate of " + scenario.scenarioName() + " must be positive");
+            }
+            this.scenario = scenario;
+            this.rate = rate;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.evotor.userservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.evotor.userservice.entity.UserEntity;
+import ru.evotor.userservice.model.User;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserMappingBenchmark {
+
+    private UserEntity entity;
+
+    private User model;
+
+    @Setup
+    public void setUp() {
+        entity = new UserEntity(1L, "Petr", "Petrov", "Petrovich", new Date(0));
+        model = new User(1L, "Petr", "Petrov", "Petrovich", new Date(0));
+    }
+
+    @Benchmark
+    public User toModel() {
+        return User.toModel(entity);
+    }
+
+    @Benchmark
+    public UserEntity toEntity() {
+        return User.toEntity(model);
+    }
+}
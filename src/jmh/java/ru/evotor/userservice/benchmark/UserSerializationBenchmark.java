@@ -0,0 +1,74 @@
+package ru.evotor.userservice.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.evotor.userservice.model.User;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode time of a user list in each wire format, configured as the service configures it. The payload size
+ * of each format is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+
+    private List<User> users;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = objectMapper(format);
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            users.add(new User((long) i, "First" + i, "Last" + i, "Patronymic" + i, new Date(i * 86_400_000L)));
+        }
+
+        System.out.printf("%n%s payload of %d users: %d bytes%n",
+                format, size, objectMapper.writeValueAsBytes(users).length);
+    }
+
+    @Benchmark
+    public byte[] writeUsers() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(users);
+    }
+
+    private static ObjectMapper objectMapper(String format) {
+        switch (format) {
+            case "json":
+                return Jackson2ObjectMapperBuilder.json()
+                        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                        .build();
+            case "cbor":
+                return Jackson2ObjectMapperBuilder.json().factory(new CBORFactory())
+                        .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                        .build();
+            case "smile":
+                return Jackson2ObjectMapperBuilder.json().factory(new SmileFactory())
+                        .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                        .build();
+            default:
+                throw new IllegalArgumentException("Unknown format: " + format);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ru.evotor.userservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.evotor.userservice.model.User;
+import ru.evotor.userservice.service.UserService;
+import ru.evotor.userservice.wrapper.DateRange;
+import ru.evotor.userservice.wrapper.FullName;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserServiceBenchmark {
+
+    @Param({"100000"})
+    private int users;
+
+    private EmbeddedUserService embeddedUserService;
+
+    private UserService userService;
+
+    private FullName firstName;
+
+    private FullName firstNameAndLastName;
+
+    private DateRange oneYear;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Measures the searches themselves, not hits of the search results cache.
+        embeddedUserService = EmbeddedUserService.start(users, "spring.cache.type=none");
+        userService = embeddedUserService.getBean(UserService.class);
+
+        firstName = new FullName("First42", null, null);
+        firstNameAndLastName = new FullName("First42", "Last42", null);
+        oneYear = new DateRange();
+        oneYear.setDateFrom(Date.valueOf("1970-01-01"));
+        oneYear.setDateTo(Date.valueOf("1970-12-31"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        embeddedUserService.close();
+    }
+
+    @Benchmark
+    public List<User> getUsersByFirstName() {
+        return userService.getUsersByFullNameParts(firstName);
+    }
+
+    @Benchmark
+    public List<User> getUsersByFirstNameAndLastName() {
+        return userService.getUsersByFullNameParts(firstNameAndLastName);
+    }
+
+    @Benchmark
+    public List<User> getUsersByDateOfBirthRange() {
+        return userService.getUsersByDateOfBirthRange(oneYear);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.evotor.userservice.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.NullValue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registers every cache with a spec of its own, {@code user-service.users.cache-spec} and
+ * {@code user-service.search.cache-spec}, so {@code spring.cache.caffeine.spec} is not used.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String USERS_CACHE = "users";
+
+    public static final String USER_SEARCHES_CACHE = "user-searches";
+
+    /**
+     * Search results are larger and go stale on any write, so they get their own size and expiry.
+     */
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> userSearchesCacheCustomizer(
+            @Value("${user-service.search.cache-spec}") String cacheSpec) {
+        return cacheManager -> cacheManager.registerCustomCache(USER_SEARCHES_CACHE, Caffeine.from(cacheSpec).build());
+    }
+
+    /**
+     * Lookups by id cache misses too, as {@link NullValue}, so that they can be loaded with {@code sync}. A
+     * missing id may be taken by a user created on another instance, so misses expire much sooner than users.
+     */
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> usersCacheCustomizer(
+            @Value("${user-service.users.cache-spec}") String cacheSpec,
+            @Value("${user-service.users.cache-ttl-ms}") long ttlMillis,
+            @Value("${user-service.users.miss-ttl-ms}") long missTtlMillis) {
+        return cacheManager -> cacheManager.registerCustomCache(USERS_CACHE, Caffeine.from(cacheSpec)
+                .expireAfter(new WriteExpiry(TimeUnit.MILLISECONDS.toNanos(ttlMillis),
+                        TimeUnit.MILLISECONDS.toNanos(missTtlMillis)))
+                .build());
+    }
+
+    private static class WriteExpiry implements Expiry<Object, Object> {
+
+        private final long ttlNanos;
+
+        private final long missTtlNanos;
+
+        WriteExpiry(long ttlNanos, long missTtlNanos) {
+            this.ttlNanos = ttlNanos;
+            this.missTtlNanos = missTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            return value == NullValue.INSTANCE ? missTtlNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
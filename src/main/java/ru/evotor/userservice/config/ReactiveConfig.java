@@ -0,0 +1,62 @@
+package ru.evotor.userservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * R2DBC beans for the reactive runtime mode ({@code reactive} profile). They are declared by hand
+ * instead of through the R2DBC auto-configuration, which is excluded so that the servlet mode
+ * does not need an R2DBC url and keeps the JPA transaction manager as the only one.
+ * <p>
+ * The JDBC data source, still used by Liquibase and the {@code user_changes} feed, is declared here as well:
+ * the data source auto-configuration backs off as soon as there is a {@link ConnectionFactory} bean.
+ * <p>
+ * The two modes are exclusive for a database. Reactive writes do not go through the {@code users} and
+ * {@code user-searches} caches or Hibernate's caches, which servlet instances only evict on their own writes,
+ * so a servlet instance sharing the database would serve changed or deleted users until the entries expire.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool connectionFactory(@Value("${user-service.r2dbc.url}") String url,
+                                            @Value("${user-service.r2dbc.username}") String username,
+                                            @Value("${user-service.r2dbc.password}") String password,
+                                            @Value("${user-service.r2dbc.pool.initial-size}") int initialSize,
+                                            @Value("${user-service.r2dbc.pool.max-size}") int maxSize) {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build());
+
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .initialSize(initialSize)
+                .maxSize(maxSize)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+}
@@ -0,0 +1,19 @@
+package ru.evotor.userservice.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sends the read-only transactions of the annotated method to the primary while a write of this instance is
+ * in progress or ended less than {@code user-service.datasource.replica.max-lag} ago, and to a replica
+ * otherwise. Used by the methods that put what they read into a cache, so that a lagging replica can not put
+ * back a row that a committed write has already evicted.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadFromPrimary {
+}
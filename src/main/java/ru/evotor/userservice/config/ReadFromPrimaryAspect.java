@@ -0,0 +1,39 @@
+package ru.evotor.userservice.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.time.Duration;
+
+/**
+ * Applies {@link ReadFromPrimary}. It runs before the transaction and cache interceptors, so the routing
+ * is decided before the transaction begins, and it keeps a read-your-writes request routed to the primary
+ * after the method returns.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReadFromPrimaryAspect {
+
+    private final Duration maxLag;
+
+    public ReadFromPrimaryAspect(Duration maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    @Around("@annotation(ru.evotor.userservice.config.ReadFromPrimary)")
+    public Object readFromPrimary(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (ReplicaRoutingDataSource.isReadYourWrites() || !ReplicaRoutingDataSource.isWrittenWithin(maxLag)) {
+            return joinPoint.proceed();
+        }
+
+        ReplicaRoutingDataSource.setReadYourWrites(true);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReplicaRoutingDataSource.setReadYourWrites(false);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package ru.evotor.userservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas for the JPA data source, enabled by a comma-separated
+ * {@code user-service.datasource.replica.urls}. Replicas use the credentials of
+ * {@code spring.datasource}. Without the property the auto-configured single data source is kept.
+ * <p>
+ * Reads that fill a cache are sent to the primary with {@link ReadFromPrimary} for
+ * {@code user-service.datasource.replica.max-lag} after a write, and the other read-only transactions do not
+ * put into Hibernate's caches, see {@link ReplicaJpaTransactionManager}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "user-service.datasource.replica", name = "urls")
+public class ReplicaDataSourceConfig {
+
+    public static final String READ_YOUR_WRITES_HEADER = "X-Read-Your-Writes";
+
+    /**
+     * The only {@link DataSource} bean of the context: the primary and replica pools behind it are not beans,
+     * because the data source initializer of Spring Boot is created by the first data source bean and would
+     * look up this one while it is still being created.
+     */
+    @Bean
+    @Primary
+    public RoutingDataSourceProxy dataSource(
+            DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry,
+            @Value("${user-service.datasource.replica.urls}") List<String> urls,
+            @Value("${user-service.datasource.replica.balancing}") ReplicaRoutingDataSource.Balancing balancing) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+        primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+
+        List<HikariDataSource> replicas = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url.strip())
+                    .build();
+            replica.setPoolName("replica-" + replicas.size());
+            if (primary.getMaximumPoolSize() > 0) {
+                // Unset until the pool starts, then Hikari's default is used for both.
+                replica.setMaximumPoolSize(primary.getMaximumPoolSize());
+            }
+            replica.setReadOnly(true);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(replica);
+        }
+
+        ReplicaRoutingDataSource replicaRoutingDataSource = new ReplicaRoutingDataSource(primary, replicas, balancing);
+        replicaRoutingDataSource.afterPropertiesSet();
+        return new RoutingDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public JpaTransactionManager transactionManager(
+            EntityManagerFactory entityManagerFactory, RoutingDataSourceProxy dataSource,
+            ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
+        JpaTransactionManager transactionManager =
+                new ReplicaJpaTransactionManager(entityManagerFactory, dataSource.getReplicaRoutingDataSource());
+        transactionManagerCustomizers.ifAvailable(customizers -> customizers.customize(transactionManager));
+        return transactionManager;
+    }
+
+    @Bean
+    public ReadFromPrimaryAspect readFromPrimaryAspect(
+            @Value("${user-service.datasource.replica.max-lag}") Duration maxLag) {
+        return new ReadFromPrimaryAspect(maxLag);
+    }
+
+    /**
+     * Sends all reads of a request to the primary when the client asks for it with
+     * {@value #READ_YOUR_WRITES_HEADER}{@code : true}, usually right after its own write.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public OncePerRequestFilter readYourWritesFilter() {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                            FilterChain filterChain) throws ServletException, IOException {
+                ReplicaRoutingDataSource.setReadYourWrites(
+                        Boolean.parseBoolean(request.getHeader(READ_YOUR_WRITES_HEADER)));
+                try {
+                    filterChain.doFilter(request, response);
+                } finally {
+                    ReplicaRoutingDataSource.setReadYourWrites(false);
+                }
+            }
+        };
+    }
+
+    /**
+     * Defers the choice of the pool to the first statement of a transaction, when its read-only flag is
+     * known, and closes the pools with the context.
+     */
+    public static class RoutingDataSourceProxy extends LazyConnectionDataSourceProxy implements Closeable {
+
+        private final ReplicaRoutingDataSource replicaRoutingDataSource;
+
+        RoutingDataSourceProxy(ReplicaRoutingDataSource replicaRoutingDataSource) {
+            super(replicaRoutingDataSource);
+            this.replicaRoutingDataSource = replicaRoutingDataSource;
+        }
+
+        public ReplicaRoutingDataSource getReplicaRoutingDataSource() {
+            return replicaRoutingDataSource;
+        }
+
+        @Override
+        public void close() {
+            replicaRoutingDataSource.close();
+        }
+    }
+}
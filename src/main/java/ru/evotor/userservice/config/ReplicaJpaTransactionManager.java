@@ -0,0 +1,60 @@
+package ru.evotor.userservice.config;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Keeps rows read from a lagging replica out of Hibernate's second-level and query caches: the session of a
+ * transaction that {@link ReplicaRoutingDataSource} serves from a replica may read the caches but does not
+ * put into them. Reads that must fill the caches are sent to the primary with {@link ReadFromPrimary}.
+ * <p>
+ * Read-write transactions are registered with {@link ReplicaRoutingDataSource#beginWrite} until they complete,
+ * which is what {@link ReadFromPrimary} checks.
+ */
+public class ReplicaJpaTransactionManager extends JpaTransactionManager {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    public ReplicaJpaTransactionManager(EntityManagerFactory entityManagerFactory,
+                                        ReplicaRoutingDataSource replicaRoutingDataSource) {
+        super(entityManagerFactory);
+        this.replicaRoutingDataSource = replicaRoutingDataSource;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        super.doBegin(transaction, definition);
+
+        if (replicaRoutingDataSource.isReplicaTransaction(definition.isReadOnly())) {
+            EntityManagerHolder entityManagerHolder =
+                    (EntityManagerHolder) TransactionSynchronizationManager.getResource(obtainEntityManagerFactory());
+            entityManagerHolder.getEntityManager().unwrap(Session.class).setCacheMode(CacheMode.GET);
+        }
+    }
+
+    @Override
+    protected void prepareSynchronization(DefaultTransactionStatus status, TransactionDefinition definition) {
+        super.prepareSynchronization(status, definition);
+
+        if (status.isNewTransaction() && !definition.isReadOnly()
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            ReplicaRoutingDataSource.beginWrite();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int completionStatus) {
+                    ReplicaRoutingDataSource.endWrite();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package ru.evotor.userservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections of read-only transactions to one of the replica pools and everything else to the
+ * primary. The decision is made when a connection is requested, so it must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: with a plain data source
+ * the transaction manager takes the connection before the read-only flag of the transaction is set.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    public enum Balancing {
+        ROUND_ROBIN,
+        LEAST_CONNECTIONS
+    }
+
+    private static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> READ_YOUR_WRITES = ThreadLocal.withInitial(() -> false);
+
+    private static final AtomicInteger WRITES_IN_PROGRESS = new AtomicInteger();
+
+    private static volatile boolean written;
+
+    private static volatile long lastWriteNanos;
+
+    private final DataSource primary;
+
+    private final List<HikariDataSource> replicas;
+
+    private final Balancing balancing;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, Balancing balancing) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.balancing = balancing;
+
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(PRIMARY, primary);
+        for (int i = 0; i < this.replicas.size(); i++) {
+            targetDataSources.put(i, this.replicas.get(i));
+        }
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * Routes the read-only transactions of the current thread to the primary as well, for clients that
+     * must see their own writes before they reach the replicas.
+     */
+    public static void setReadYourWrites(boolean readYourWrites) {
+        if (readYourWrites) {
+            READ_YOUR_WRITES.set(true);
+        } else {
+            READ_YOUR_WRITES.remove();
+        }
+    }
+
+    public static boolean isReadYourWrites() {
+        return READ_YOUR_WRITES.get();
+    }
+
+    /**
+     * Marks the start of a write to the primary. Must be paired with {@link #endWrite} once the write is
+     * committed or rolled back.
+     */
+    public static void beginWrite() {
+        WRITES_IN_PROGRESS.incrementAndGet();
+    }
+
+    public static void endWrite() {
+        lastWriteNanos = System.nanoTime();
+        written = true;
+        WRITES_IN_PROGRESS.decrementAndGet();
+    }
+
+    /**
+     * Tells whether a write of this instance is in progress or ended less than {@code maxLag} ago, so a
+     * replica may not have it yet.
+     */
+    public static boolean isWrittenWithin(Duration maxLag) {
+        return WRITES_IN_PROGRESS.get() > 0 || written && System.nanoTime() - lastWriteNanos < maxLag.toNanos();
+    }
+
+    /**
+     * Tells whether a transaction of the current thread with the given read-only flag is served by a replica.
+     */
+    public boolean isReplicaTransaction(boolean readOnly) {
+        return readOnly && !replicas.isEmpty() && !READ_YOUR_WRITES.get();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!isReplicaTransaction(TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+            return PRIMARY;
+        }
+
+        int first = Math.floorMod(next.getAndIncrement(), replicas.size());
+        if (balancing == Balancing.ROUND_ROBIN) {
+            return first;
+        }
+
+        // Least connections, starting from the round-robin position so that idle replicas share the load.
+        int chosen = first;
+        int chosenConnections = activeConnections(replicas.get(first));
+        for (int i = 1; i < replicas.size() && chosenConnections > 0; i++) {
+            int replica = (first + i) % replicas.size();
+            int connections = activeConnections(replicas.get(replica));
+            if (connections < chosenConnections) {
+                chosen = replica;
+                chosenConnections = connections;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Closes the replica pools and the primary when it is a pool.
+     */
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        if (primary instanceof Closeable) {
+            try {
+                ((Closeable) primary).close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static int activeConnections(HikariDataSource replica) {
+        HikariPoolMXBean pool = replica.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getActiveConnections();
+    }
+}
@@ -0,0 +1,204 @@
+package ru.evotor.userservice.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.server.WebFilter;
+import reactor.core.publisher.Mono;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * CBOR ({@code application/cbor}) and Smile ({@code application/x-jackson-smile}) next to JSON, chosen by the
+ * Accept header. They share the JSON mapping of every model except for dates, which are written as epoch
+ * milliseconds instead of ISO strings.
+ * <p>
+ * Entity tags of user responses identify a user version, not a representation, so for the binary formats
+ * the tag gets the format as a suffix on the way out and loses it on the way in. A client holding the JSON
+ * tag never gets 304 for CBOR, and every response varies by Accept.
+ */
+@Configuration
+public class WireFormatConfig {
+
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(binaryMapper(builder, new CBORFactory()));
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(binaryMapper(builder, new SmileFactory()));
+    }
+
+    /**
+     * WebFlux registers Smile by default when it is on the classpath, with the same date handling; CBOR is
+     * added here.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public CodecCustomizer cborCodecCustomizer(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper cborMapper = binaryMapper(builder, new CBORFactory());
+        return configurer -> {
+            configurer.customCodecs().register(new Jackson2CborEncoder(cborMapper));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper));
+        };
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public OncePerRequestFilter representationETagFilter() {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                            FilterChain filterChain) throws ServletException, IOException {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                String format = binaryFormat(Collections.list(request.getHeaders(HttpHeaders.ACCEPT)));
+                if (format == null) {
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+
+                List<String> ifNoneMatch =
+                        untag(Collections.list(request.getHeaders(HttpHeaders.IF_NONE_MATCH)), format);
+                filterChain.doFilter(new HttpServletRequestWrapper(request) {
+                    @Override
+                    public String getHeader(String name) {
+                        if (!HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name)) {
+                            return super.getHeader(name);
+                        }
+                        return ifNoneMatch.isEmpty() ? null : String.join(", ", ifNoneMatch);
+                    }
+
+                    @Override
+                    public Enumeration<String> getHeaders(String name) {
+                        if (!HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name)) {
+                            return super.getHeaders(name);
+                        }
+                        return Collections.enumeration(ifNoneMatch);
+                    }
+                }, new HttpServletResponseWrapper(response) {
+                    @Override
+                    public void setHeader(String name, String value) {
+                        super.setHeader(name, HttpHeaders.ETAG.equalsIgnoreCase(name) ? tag(value, format) : value);
+                    }
+
+                    @Override
+                    public void addHeader(String name, String value) {
+                        super.addHeader(name, HttpHeaders.ETAG.equalsIgnoreCase(name) ? tag(value, format) : value);
+                    }
+                });
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public WebFilter representationETagWebFilter() {
+        return (exchange, chain) -> {
+            HttpHeaders responseHeaders = exchange.getResponse().getHeaders();
+            responseHeaders.add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            String format = binaryFormat(exchange.getRequest().getHeaders().getOrEmpty(HttpHeaders.ACCEPT));
+            if (format == null) {
+                return chain.filter(exchange);
+            }
+
+            ServerHttpRequest request = exchange.getRequest().mutate().headers(headers -> {
+                List<String> ifNoneMatch = untag(headers.getOrEmpty(HttpHeaders.IF_NONE_MATCH), format);
+                headers.remove(HttpHeaders.IF_NONE_MATCH);
+                headers.addAll(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+            }).build();
+            exchange.getResponse().beforeCommit(() -> {
+                String eTag = responseHeaders.getETag();
+                if (eTag != null) {
+                    responseHeaders.setETag(tag(eTag, format));
+                }
+                return Mono.empty();
+            });
+            return chain.filter(exchange.mutate().request(request).build());
+        };
+    }
+
+    private static ObjectMapper binaryMapper(Jackson2ObjectMapperBuilder builder, JsonFactory factory) {
+        return builder.factory(factory).featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    }
+
+    /**
+     * Returns {@code cbor} or {@code smile} when the most preferred acceptable type is one of them, and null
+     * when JSON is chosen as for any wildcard.
+     */
+    static String binaryFormat(List<String> accept) {
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+                return null;
+            }
+            if (mediaType.includes(MediaType.APPLICATION_CBOR)) {
+                return "cbor";
+            }
+            if (mediaType.includes(APPLICATION_SMILE)) {
+                return "smile";
+            }
+        }
+        return null;
+    }
+
+    static String tag(String eTag, String format) {
+        return eTag.endsWith("\"") ? eTag.substring(0, eTag.length() - 1) + "-" + format + "\"" : eTag;
+    }
+
+    /**
+     * Strips the format suffix from the tags of If-None-Match and drops the tags of other representations.
+     */
+    static List<String> untag(List<String> ifNoneMatch, String format) {
+        String suffix = "-" + format + "\"";
+        List<String> eTags = new ArrayList<>();
+        for (String header : ifNoneMatch) {
+            for (String eTag : header.split(",")) {
+                eTag = eTag.strip();
+                if (eTag.equals("*")) {
+                    eTags.add(eTag);
+                } else if (eTag.endsWith(suffix)) {
+                    eTags.add(eTag.substring(0, eTag.length() - suffix.length()) + "\"");
+                }
+            }
+        }
+        return eTags;
+    }
+}
@@ -0,0 +1,38 @@
+package ru.evotor.userservice.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.evotor.userservice.model.UserChangeBatch;
+import ru.evotor.userservice.service.UserChangeService;
+
+/**
+ * WebFlux version of {@link UserChangeController}. The feed is read with JDBC, so the first read of a
+ * request runs on the bounded elastic scheduler instead of the event loop; a waiting request holds no
+ * thread until a change appears.
+ */
+@RestController
+@RequestMapping("/user/changes")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserChangeController {
+
+    private final UserChangeService userChangeService;
+
+    @Autowired
+    public ReactiveUserChangeController(UserChangeService userChangeService) {
+        this.userChangeService = userChangeService;
+    }
+
+    @GetMapping
+    public Mono<UserChangeBatch> getChanges(@RequestParam(value = "after", required = false) String after,
+                                            @RequestParam(value = "limit", required = false) Integer limit,
+                                            @RequestParam(value = "wait", required = false) Integer waitSeconds) {
+        return Mono.defer(() -> Mono.fromFuture(userChangeService.awaitChanges(after, limit, waitSeconds)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
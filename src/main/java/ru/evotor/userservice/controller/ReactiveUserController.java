@@ -0,0 +1,161 @@
+package ru.evotor.userservice.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.evotor.userservice.model.User;
+import ru.evotor.userservice.model.UserBatch;
+import ru.evotor.userservice.service.ReactiveUserService;
+import ru.evotor.userservice.wrapper.DateRange;
+import ru.evotor.userservice.wrapper.FullName;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebFlux version of {@link UserController} with the same paths, bodies and status codes. Errors are
+ * mapped by {@link UserExceptionHandler} as in the servlet mode.
+ */
+@RestController
+@RequestMapping("/user")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+
+    private final ReactiveUserService userService;
+
+    private final CacheControl searchCacheControl;
+
+    private static final String USER_NOT_FOUND_MESSAGE = "No user with such id";
+
+    @Autowired
+    public ReactiveUserController(ReactiveUserService userService,
+                                  @Value("${user-service.search.max-age-seconds}") long searchMaxAgeSeconds) {
+        this.userService = userService;
+        this.searchCacheControl = CacheControl.maxAge(searchMaxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<List<User>>> getAllUsers(@RequestParam(value = "afterId", required = false) Long afterId,
+                                                        @RequestParam(value = "limit", required = false) Integer limit) {
+        if (afterId == null && limit == null) {
+            return withETag(userService.getAllUsers());
+        }
+        return withETag(userService.getUsersPage(afterId, limit).collectList());
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<User> streamAllUsers() {
+        return userService.streamAllUsers();
+    }
+
+    @GetMapping("/find")
+    public Mono<ResponseEntity<Object>> getUserById(@RequestParam(value = "id") Long id) {
+        return userService.getUserById(id)
+                .<ResponseEntity<Object>>map(user -> ResponseEntity.ok().eTag(UserETags.of(user)).body(user))
+                .defaultIfEmpty(notFound());
+    }
+
+    @PostMapping("/find/batch")
+    public Mono<UserBatch> getUsersByIds(@RequestBody List<Long> ids) {
+        return userService.getUsersByIds(ids);
+    }
+
+    @GetMapping(value = "/find/full-name", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<User>>> getUsersByFullNameParts(@RequestBody FullName fullName) {
+        return withETag(userService.getUsersByFullNameParts(fullName));
+    }
+
+    @GetMapping("/find/full-name")
+    public Mono<ResponseEntity<List<User>>> getUsersByFullNamePartsQuery(FullName fullName) {
+        return withSearchCaching(userService.getUsersByFullNameParts(fullName));
+    }
+
+    /**
+     * WebFlux writes the JSON array element by element as rows arrive.
+     */
+    @GetMapping(value = "/find/full-name/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<User> streamUsersByFullNameParts(FullName fullName) {
+        return userService.streamUsersByFullNameParts(fullName);
+    }
+
+    @GetMapping(value = "find/date-of-birth", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<User>>> getUsersByDateOfBirth(@RequestBody DateRange dateOfBirthRange) {
+        return withETag(userService.getUsersByDateOfBirthRange(dateOfBirthRange));
+    }
+
+    @GetMapping("find/date-of-birth")
+    public Mono<ResponseEntity<List<User>>> getUsersByDateOfBirthQuery(DateRange dateOfBirthRange) {
+        return withSearchCaching(userService.getUsersByDateOfBirthRange(dateOfBirthRange));
+    }
+
+    @GetMapping(value = "find/date-of-birth/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<User> streamUsersByDateOfBirth(DateRange dateOfBirthRange) {
+        return userService.streamUsersByDateOfBirthRange(dateOfBirthRange);
+    }
+
+    @GetMapping("count/date-of-birth")
+    public Mono<Long> countUsersByDateOfBirth(DateRange dateOfBirthRange) {
+        return userService.countUsersByDateOfBirthRange(dateOfBirthRange);
+    }
+
+    @GetMapping("count/date-of-birth/by-year")
+    public Mono<SortedMap<Integer, Long>> countUsersByYearOfBirth(DateRange dateOfBirthRange) {
+        return userService.countUsersByYearOfBirth(dateOfBirthRange);
+    }
+
+    @GetMapping("/search")
+    public Mono<ResponseEntity<List<User>>> searchUsersByName(@RequestParam(value = "q") String query,
+                                                              @RequestParam(value = "limit", required = false) Integer limit) {
+        return withETag(userService.searchUsersByName(query, limit).collectList());
+    }
+
+    @PostMapping
+    public Mono<String> createUser(@RequestBody User user) {
+        return userService.createUser(user).thenReturn("User successfully created");
+    }
+
+    @PostMapping("/batch")
+    public Mono<List<Long>> createUsers(@RequestBody List<User> users) {
+        return userService.createUsers(users);
+    }
+
+    @PostMapping("/update")
+    public Mono<ResponseEntity<Object>> updateUser(@RequestBody User user) {
+        return orNotFound(userService.updateUser(user));
+    }
+
+    @DeleteMapping("/delete")
+    public Mono<ResponseEntity<Object>> deleteUser(@RequestParam Long id) {
+        return orNotFound(userService.deleteUser(id));
+    }
+
+    @PostMapping("/delete/batch")
+    public Mono<Integer> deleteUsers(@RequestBody List<Long> ids) {
+        return userService.deleteUsers(ids);
+    }
+
+    private static Mono<ResponseEntity<List<User>>> withETag(Mono<List<User>> users) {
+        return users.map(result -> ResponseEntity.ok().eTag(UserETags.of(result)).body(result));
+    }
+
+    private Mono<ResponseEntity<List<User>>> withSearchCaching(Mono<List<User>> users) {
+        return users.map(result -> ResponseEntity.ok().cacheControl(searchCacheControl).eTag(UserETags.of(result))
+                .body(result));
+    }
+
+    private static Mono<ResponseEntity<Object>> orNotFound(Mono<?> result) {
+        return result.<ResponseEntity<Object>>map(ResponseEntity::ok).defaultIfEmpty(notFound());
+    }
+
+    private static ResponseEntity<Object> notFound() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(USER_NOT_FOUND_MESSAGE);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.evotor.userservice.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.evotor.userservice.model.UserChangeBatch;
+import ru.evotor.userservice.service.UserChangeService;
+
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/user/changes")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserChangeController {
+
+    private final UserChangeService userChangeService;
+
+    @Autowired
+    public UserChangeController(UserChangeService userChangeService) {
+        this.userChangeService = userChangeService;
+    }
+
+    @GetMapping
+    public CompletableFuture<UserChangeBatch> getChanges(@RequestParam(value = "after", required = false) String after,
+                                                         @RequestParam(value = "limit", required = false) Integer limit,
+                                                         @RequestParam(value = "wait", required = false) Integer waitSeconds) {
+        return userChangeService.awaitChanges(after, limit, waitSeconds);
+    }
+}
@@ -1,99 +1,273 @@
 package ru.evotor.userservice.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import ru.evotor.userservice.exception.UserNotFoundException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.evotor.userservice.config.ReplicaRoutingDataSource;
+import ru.evotor.userservice.model.ImportReport;
 import ru.evotor.userservice.model.User;
+import ru.evotor.userservice.model.UserBatch;
+import ru.evotor.userservice.service.UserImportService;
 import ru.evotor.userservice.service.UserService;
 import ru.evotor.userservice.wrapper.DateRange;
 import ru.evotor.userservice.wrapper.FullName;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
 @RestController
 @RequestMapping("/user")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserController {
 
     private UserService userService;
 
-    private static final String GETTING_USER_ERROR_MESSAGE = "Error getting users";
+    private final UserImportService userImportService;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectWriter userWriter;
+
+    private final CacheControl searchCacheControl;
+
+    private static final String USER_NOT_FOUND_MESSAGE = "No user with such id";
+
+    private static final String TEXT_CSV_VALUE = "text/csv";
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserImportService userImportService, ObjectMapper objectMapper,
+                          @Value("${user-service.search.max-age-seconds}") long searchMaxAgeSeconds) {
         this.userService = userService;
+        this.userImportService = userImportService;
+        this.objectMapper = objectMapper;
+        this.userWriter = objectMapper.writerFor(User.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.searchCacheControl = CacheControl.maxAge(searchMaxAgeSeconds, TimeUnit.SECONDS).cachePublic();
     }
 
     @GetMapping
-    public ResponseEntity getAllUsers() {
-        try {
-            return ResponseEntity.ok(userService.getAllUsers());
-        } catch (UserNotFoundException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(GETTING_USER_ERROR_MESSAGE);
+    public ResponseEntity<List<User>> getAllUsers(@RequestParam(value = "afterId", required = false) Long afterId,
+                                                  @RequestParam(value = "limit", required = false) Integer limit) {
+        if (afterId == null && limit == null) {
+            return withETag(userService.getAllUsers());
         }
+        return withETag(userService.getUsersPage(afterId, limit));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        StreamingResponseBody body = withReadYourWrites(outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                userService.streamAllUsers(user -> writeLine(generator, user));
+            }
+        });
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @GetMapping("/find")
     public ResponseEntity getUserById(@RequestParam(value = "id") Long id) {
-        try {
-            return ResponseEntity.ok(userService.getUserById(id));
-        } catch (UserNotFoundException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(GETTING_USER_ERROR_MESSAGE);
-        }
+        return userService.getUserById(id)
+                .<ResponseEntity>map(user -> ResponseEntity.ok().eTag(UserETags.of(user)).body(user))
+                .orElseGet(() -> notFound(USER_NOT_FOUND_MESSAGE));
+    }
+
+    @PostMapping("/find/batch")
+    public UserBatch getUsersByIds(@RequestBody List<Long> ids) {
+        return userService.getUsersByIds(ids);
+    }
+
+    @GetMapping(value = "/find/full-name", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<User>> getUsersByFullNameParts(@RequestBody FullName fullName) {
+        return withETag(userService.getUsersByFullNameParts(fullName));
     }
 
+    /**
+     * Same search with {@code firstName}, {@code lastName} and {@code patronymic} query parameters, which
+     * proxies and CDNs can cache for {@code user-service.search.max-age-seconds}.
+     */
     @GetMapping("/find/full-name")
-    public ResponseEntity getUsersByFullNameParts(@RequestBody FullName fullName) {
-        try {
-            return ResponseEntity.ok().body(userService.getUsersByFullNameParts(fullName));
-        } catch (UserNotFoundException | IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(GETTING_USER_ERROR_MESSAGE);
-        }
+    public ResponseEntity<List<User>> getUsersByFullNamePartsQuery(FullName fullName) {
+        return withSearchCaching(userService.getUsersByFullNameParts(fullName));
+    }
+
+    /**
+     * Same search as a JSON array written while rows are read, for results too large to build in memory.
+     * There is no ETag, as it needs the whole result before the first byte.
+     */
+    @GetMapping("/find/full-name/stream")
+    public ResponseEntity<StreamingResponseBody> streamUsersByFullNameParts(FullName fullName) {
+        return streamJsonArray(users -> userService.streamUsersByFullNameParts(fullName, users));
+    }
+
+    @GetMapping(value = "find/date-of-birth", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<User>> getUsersByDateOfBirth(@RequestBody DateRange dateOfBirthRange) {
+        return withETag(userService.getUsersByDateOfBirthRange(dateOfBirthRange));
     }
 
+    /**
+     * Same search with ISO date {@code dateFrom} and {@code dateTo} query parameters, cacheable like
+     * {@link #getUsersByFullNamePartsQuery}.
+     */
     @GetMapping("find/date-of-birth")
-    public ResponseEntity getUsersByDateOfBirth(@RequestBody DateRange dateOfBirthRange) {
-        try {
-            return ResponseEntity.ok().body(userService.getUsersByDateOfBirthRange(dateOfBirthRange));
-        } catch (UserNotFoundException | IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(GETTING_USER_ERROR_MESSAGE);
-        }
+    public ResponseEntity<List<User>> getUsersByDateOfBirthQuery(DateRange dateOfBirthRange) {
+        return withSearchCaching(userService.getUsersByDateOfBirthRange(dateOfBirthRange));
+    }
+
+    @GetMapping("find/date-of-birth/stream")
+    public ResponseEntity<StreamingResponseBody> streamUsersByDateOfBirth(DateRange dateOfBirthRange) {
+        return streamJsonArray(users -> userService.streamUsersByDateOfBirthRange(dateOfBirthRange, users));
+    }
+
+    @GetMapping("count/date-of-birth")
+    public long countUsersByDateOfBirth(DateRange dateOfBirthRange) {
+        return userService.countUsersByDateOfBirthRange(dateOfBirthRange);
+    }
+
+    @GetMapping("count/date-of-birth/by-year")
+    public Map<Integer, Long> countUsersByYearOfBirth(DateRange dateOfBirthRange) {
+        return userService.countUsersByYearOfBirth(dateOfBirthRange);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<User>> searchUsersByName(@RequestParam(value = "q") String query,
+                                                        @RequestParam(value = "limit", required = false) Integer limit) {
+        return withETag(userService.searchUsersByName(query, limit));
     }
 
     @PostMapping
-    public ResponseEntity createUser(@RequestBody User user) {
-        try {
-            userService.createUser(user);
-            return ResponseEntity.ok("User successfully created");
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Error creating user");
-        }
+    public String createUser(@RequestBody User user) {
+        userService.createUser(user);
+        return "User successfully created";
+    }
+
+    @PostMapping("/batch")
+    public List<Long> createUsers(@RequestBody List<User> users) {
+        return userService.createUsers(users);
+    }
+
+    @PostMapping(value = "/import", consumes = TEXT_CSV_VALUE)
+    public ImportReport importUsers(InputStream csv) throws IOException {
+        return userImportService.importUsers(csv);
+    }
+
+    /**
+     * Same import answering with NDJSON: a line with the totals after every written batch, then the report.
+     */
+    @PostMapping(value = "/import/stream", consumes = TEXT_CSV_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamImportUsers(InputStream csv) {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                ImportReport report = userImportService.importUsers(csv, progress -> {
+                    writeValueLine(generator, progress);
+                    flush(generator);
+                });
+                writeValueLine(generator, report);
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @PostMapping("/update")
     public ResponseEntity updateUser(@RequestBody User user) {
-        try {
-            userService.updateUser(user);
-            return ResponseEntity.ok("User successfully updated");
-        } catch (UserNotFoundException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Error updating user");
-        }
+        return userService.updateUser(user)
+                .<ResponseEntity>map(ResponseEntity::ok)
+                .orElseGet(() -> notFound(USER_NOT_FOUND_MESSAGE));
     }
 
     @DeleteMapping("/delete")
     public ResponseEntity deleteUser(@RequestParam Long id) {
+        return userService.deleteUser(id)
+                .<ResponseEntity>map(ResponseEntity::ok)
+                .orElseGet(() -> notFound(USER_NOT_FOUND_MESSAGE));
+    }
+
+    @PostMapping("/delete/batch")
+    public int deleteUsers(@RequestBody List<Long> ids) {
+        return userService.deleteUsers(ids);
+    }
+
+    /**
+     * Spring answers a matching If-None-Match with 304 and skips serializing the body.
+     */
+    private static ResponseEntity<List<User>> withETag(List<User> users) {
+        return ResponseEntity.ok().eTag(UserETags.of(users)).body(users);
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamJsonArray(Consumer<Consumer<User>> search) {
+        StreamingResponseBody body = withReadYourWrites(outputStream -> {
+            UserJsonArrayWriter writer = new UserJsonArrayWriter(objectMapper.getFactory(), userWriter, outputStream);
+            search.accept(writer);
+            writer.finish();
+        });
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * A streaming body runs on an async thread, so the read-your-writes flag of the request thread is
+     * captured here and set again around the body.
+     */
+    private static StreamingResponseBody withReadYourWrites(StreamingResponseBody body) {
+        boolean readYourWrites = ReplicaRoutingDataSource.isReadYourWrites();
+        return outputStream -> {
+            ReplicaRoutingDataSource.setReadYourWrites(readYourWrites);
+            try {
+                body.writeTo(outputStream);
+            } finally {
+                ReplicaRoutingDataSource.setReadYourWrites(false);
+            }
+        };
+    }
+
+    private ResponseEntity<List<User>> withSearchCaching(List<User> users) {
+        return ResponseEntity.ok().cacheControl(searchCacheControl).eTag(UserETags.of(users)).body(users);
+    }
+
+    private static ResponseEntity<String> notFound(String message) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(message);
+    }
+
+    private void writeLine(JsonGenerator generator, User user) {
+        try {
+            userWriter.writeValue(generator, user);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeValueLine(JsonGenerator generator, Object value) {
+        try {
+            objectMapper.writeValue(generator, value);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void flush(JsonGenerator generator) {
         try {
-            return ResponseEntity.ok(userService.deleteUser(id));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Error deleting user");
+            generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 }
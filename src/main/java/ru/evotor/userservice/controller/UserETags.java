@@ -0,0 +1,37 @@
+package ru.evotor.userservice.controller;
+
+import ru.evotor.userservice.model.User;
+
+import java.util.List;
+
+/**
+ * Entity tags for user responses, built from ids and versions only. The version is bumped on every update
+ * and ids are never reused, so a tag changes whenever the serialized body would. The tags are weak: Tomcat
+ * does not compress a response with a strong tag, as the compressed body is a different byte sequence.
+ */
+final class UserETags {
+
+    private UserETags() {
+    }
+
+    static String of(User user) {
+        return "W/\"" + user.getId() + "-" + version(user) + "\"";
+    }
+
+    /**
+     * Aggregate tag for a list: its size plus an order-sensitive hash of every (id, version) pair, so
+     * adding, removing, reordering or updating any user in the result changes the tag.
+     */
+    static String of(List<User> users) {
+        long hash = 1125899906842597L;
+        for (User user : users) {
+            hash = 31 * hash + user.getId();
+            hash = 31 * hash + version(user);
+        }
+        return "W/\"" + users.size() + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    private static long version(User user) {
+        return user.getVersion() == null ? 0L : user.getVersion();
+    }
+}
@@ -0,0 +1,39 @@
+package ru.evotor.userservice.controller;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.evotor.userservice.exception.UserChangesCursorExpiredException;
+import ru.evotor.userservice.exception.UserVersionConflictException;
+
+/**
+ * Maps service errors to status codes for every user controller, in both the servlet and the reactive mode.
+ * Anything not handled here is left to the framework and ends up as 500.
+ */
+@RestControllerAdvice
+public class UserExceptionHandler {
+
+    private static final String CONSTRAINT_VIOLATION_MESSAGE = "User fields violate table constraints";
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<String> handleDataIntegrityViolation(DataIntegrityViolationException e) {
+        return ResponseEntity.badRequest().body(CONSTRAINT_VIOLATION_MESSAGE);
+    }
+
+    @ExceptionHandler(UserVersionConflictException.class)
+    public ResponseEntity<String> handleVersionConflict(UserVersionConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+
+    @ExceptionHandler(UserChangesCursorExpiredException.class)
+    public ResponseEntity<String> handleCursorExpired(UserChangesCursorExpiredException e) {
+        return ResponseEntity.status(HttpStatus.GONE).body(e.getMessage());
+    }
+}
@@ -0,0 +1,58 @@
+package ru.evotor.userservice.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import ru.evotor.userservice.model.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes users one by one into a JSON array on the output stream. Nothing is written before the first user,
+ * so an exception thrown before it, e.g. for invalid criteria, still gets an error response.
+ */
+final class UserJsonArrayWriter implements Consumer<User> {
+
+    private final JsonFactory jsonFactory;
+
+    private final ObjectWriter userWriter;
+
+    private final OutputStream outputStream;
+
+    private JsonGenerator generator;
+
+    UserJsonArrayWriter(JsonFactory jsonFactory, ObjectWriter userWriter, OutputStream outputStream) {
+        this.jsonFactory = jsonFactory;
+        this.userWriter = userWriter;
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    public void accept(User user) {
+        try {
+            start();
+            userWriter.writeValue(generator, user);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes the array, which is empty when no user was written.
+     */
+    void finish() throws IOException {
+        start();
+        generator.writeEndArray();
+        generator.close();
+    }
+
+    private void start() throws IOException {
+        if (generator == null) {
+            generator = jsonFactory.createGenerator(outputStream);
+            generator.writeStartArray();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ru.evotor.userservice.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.evotor.userservice.service.UserStatisticsService;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/user/stats")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserStatisticsController {
+
+    private final UserStatisticsService userStatisticsService;
+
+    @Autowired
+    public UserStatisticsController(UserStatisticsService userStatisticsService) {
+        this.userStatisticsService = userStatisticsService;
+    }
+
+    @GetMapping("/birth-year")
+    public Map<Integer, Long> countUsersByYearOfBirth() {
+        return userStatisticsService.countUsersByYearOfBirth();
+    }
+
+    @GetMapping("/age-band")
+    public Map<String, Long> countUsersByAgeBand(@RequestParam(value = "bounds", required = false) List<Integer> bounds) {
+        return userStatisticsService.countUsersByAgeBand(bounds);
+    }
+
+    @GetMapping("/last-name")
+    public Map<String, Long> countTopLastNames(@RequestParam(value = "limit", required = false) Integer limit) {
+        return userStatisticsService.countTopLastNames(limit);
+    }
+}
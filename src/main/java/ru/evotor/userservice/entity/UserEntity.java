@@ -1,15 +1,26 @@
 package ru.evotor.userservice.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.Date;
 
 @Entity
 @Table(name = UserEntity.TABLE_NAME)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = UserEntity.CACHE_REGION)
 public class UserEntity {
     public static final String TABLE_NAME = "users";
+    public static final String CACHE_REGION = "user-entities";
+    public static final String ID_SEQUENCE_NAME = "users_id_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    private static final String ID_GENERATOR_NAME = "users_id_generator";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_GENERATOR_NAME)
+    @SequenceGenerator(name = ID_GENERATOR_NAME, sequenceName = ID_SEQUENCE_NAME, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     private String firstName;
@@ -21,6 +32,9 @@ public class UserEntity {
     @Temporal(TemporalType.DATE)
     private Date dateOfBirth;
 
+    @Version
+    private Long version;
+
     public UserEntity() {
     }
 
@@ -71,4 +85,12 @@ public class UserEntity {
     public void setDateOfBirth(Date dateOfBirth) {
         this.dateOfBirth = dateOfBirth;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
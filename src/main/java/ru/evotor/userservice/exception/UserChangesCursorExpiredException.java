@@ -0,0 +1,9 @@
+package ru.evotor.userservice.exception;
+
+public class UserChangesCursorExpiredException extends UserServiceException {
+    private static final long serialVersionUID = 1L;
+
+    public UserChangesCursorExpiredException(String message) {
+        super(message);
+    }
+}
@@ -1,7 +0,0 @@
-package ru.evotor.userservice.exception;
-
-public class UserNotFoundException extends Exception {
-    public UserNotFoundException(String message) {
-        super(message);
-    }
-}
@@ -0,0 +1,13 @@
+package ru.evotor.userservice.exception;
+
+/**
+ * Base class for expected user service errors. They are reported to clients as status codes,
+ * so the stack trace is never looked at and is not filled in.
+ */
+public class UserServiceException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public UserServiceException(String message) {
+        super(message, null, false, false);
+    }
+}
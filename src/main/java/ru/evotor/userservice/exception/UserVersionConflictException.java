@@ -0,0 +1,9 @@
+package ru.evotor.userservice.exception;
+
+public class UserVersionConflictException extends UserServiceException {
+    private static final long serialVersionUID = 1L;
+
+    public UserVersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,401 @@
+package ru.evotor.userservice.index;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.evotor.userservice.model.User;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Users sorted by date of birth, kept as parallel epoch-day and id arrays ordered by (day, id).
+ * Writes go to a small unsorted buffer of added entries and a set of removed ones, which are
+ * merged into the sorted arrays once the buffer grows past {@code size / 64}. Range counts never
+ * touch the database and are exact up to the sync interval of {@link UserIndexLoader}.
+ */
+@Component
+public class DateOfBirthIndex implements UserIndex, MeterBinder {
+
+    private static final int MIN_MERGE_THRESHOLD = 4096;
+
+    private static final long[] EMPTY = new long[0];
+
+    private final boolean enabled;
+
+    private int[] days = new int[0];
+    private long[] ids = EMPTY;
+    private int size;
+
+    private int[] addedDays = new int[MIN_MERGE_THRESHOLD];
+    private long[] addedIds = new long[MIN_MERGE_THRESHOLD];
+    private int added;
+
+    private final LongIntHashMap removed = new LongIntHashMap();
+
+    private final LongIntHashMap dayById = new LongIntHashMap();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    @Autowired
+    public DateOfBirthIndex(@Value("${user-service.index.date-of-birth.enabled}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void markReady() {
+        ready = enabled;
+    }
+
+    @Override
+    public void put(User user) {
+        if (!enabled) {
+            return;
+        }
+        if (user.getDateOfBirth() == null) {
+            remove(user.getId());
+            return;
+        }
+
+        long id = user.getId();
+        int day = toEpochDay(user.getDateOfBirth());
+        lock.writeLock().lock();
+        try {
+            int previousDay = dayById.get(id);
+            if (previousDay == day) {
+                return;
+            }
+            if (previousDay != LongIntHashMap.MISSING) {
+                removeEntry(id, previousDay);
+            }
+
+            dayById.put(id, day);
+            addEntry(id, day);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            int day = dayById.remove(id);
+            if (day != LongIntHashMap.MISSING) {
+                removeEntry(id, day);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Counts users born between the given epoch days, both inclusive.
+     */
+    public long count(int fromDay, int toDay) {
+        lock.readLock().lock();
+        try {
+            return countInRange(fromDay, toDay);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts users born between the given epoch days, both inclusive, per year of birth.
+     * Years without users are left out.
+     */
+    public SortedMap<Integer, Long> countByYear(int fromDay, int toDay) {
+        SortedMap<Integer, Long> countsByYear = new TreeMap<>();
+        lock.readLock().lock();
+        try {
+            if (dayById.size() == 0) {
+                return countsByYear;
+            }
+
+            LocalDate from = LocalDate.ofEpochDay(Math.max(fromDay, minDay()));
+            LocalDate to = LocalDate.ofEpochDay(Math.min(toDay, maxDay()));
+            for (int year = from.getYear(); year <= to.getYear(); year++) {
+                LocalDate yearFrom = year == from.getYear() ? from : LocalDate.of(year, 1, 1);
+                LocalDate yearTo = year == to.getYear() ? to : LocalDate.of(year, 12, 31);
+                long count = countInRange(toEpochDay(yearFrom), toEpochDay(yearTo));
+                if (count > 0) {
+                    countsByYear.put(year, count);
+                }
+            }
+            return countsByYear;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns ids of users born between the given epoch days, both inclusive, ordered by date of birth.
+     */
+    public long[] findIds(int fromDay, int toDay) {
+        if (fromDay > toDay) {
+            return EMPTY;
+        }
+
+        lock.readLock().lock();
+        try {
+            int from = lowerBound(fromDay);
+            int to = upperBound(toDay);
+            int[] resultDays = new int[to - from + added];
+            long[] result = new long[to - from + added];
+            int resultSize = 0;
+            for (int i = from; i < to; i++) {
+                if (!removed.containsKey(ids[i])) {
+                    resultDays[resultSize] = days[i];
+                    result[resultSize++] = ids[i];
+                }
+            }
+            int sorted = resultSize;
+            for (int i = 0; i < added; i++) {
+                if (addedDays[i] >= fromDay && addedDays[i] <= toDay) {
+                    resultDays[resultSize] = addedDays[i];
+                    result[resultSize++] = addedIds[i];
+                }
+            }
+            if (sorted != resultSize) {
+                sortByDayAndId(resultDays, result, resultSize);
+            }
+
+            return resultSize == result.length ? result : Arrays.copyOf(result, resultSize);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getEntries() {
+        lock.readLock().lock();
+        try {
+            return dayById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getEstimatedMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            return 16 + 4L * days.length + 16 + 8L * ids.length
+                    + 16 + 4L * addedDays.length + 16 + 8L * addedIds.length
+                    + removed.memoryBytes() + dayById.memoryBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.index.memory", this, DateOfBirthIndex::getEstimatedMemoryBytes)
+                .tag("index", "date-of-birth")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("user.index.terms", this, DateOfBirthIndex::getEntries)
+                .tag("index", "date-of-birth")
+                .register(registry);
+    }
+
+    public static int toEpochDay(Date date) {
+        if (date instanceof java.sql.Date) {
+            return (int) ((java.sql.Date) date).toLocalDate().toEpochDay();
+        }
+        return (int) date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    public static int toEpochDay(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    private long countInRange(int fromDay, int toDay) {
+        if (fromDay > toDay) {
+            return 0;
+        }
+
+        long count = upperBound(toDay) - lowerBound(fromDay);
+        for (int i = 0; i < added; i++) {
+            if (addedDays[i] >= fromDay && addedDays[i] <= toDay) {
+                count++;
+            }
+        }
+        long[] removedInRange = new long[1];
+        removed.forEach((id, day) -> {
+            if (day >= fromDay && day <= toDay) {
+                removedInRange[0]++;
+            }
+        });
+        return count - removedInRange[0];
+    }
+
+    private int minDay() {
+        int minDay = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (!removed.containsKey(ids[i])) {
+                minDay = days[i];
+                break;
+            }
+        }
+        for (int i = 0; i < added; i++) {
+            minDay = Math.min(minDay, addedDays[i]);
+        }
+        return minDay;
+    }
+
+    private int maxDay() {
+        int maxDay = Integer.MIN_VALUE;
+        for (int i = size - 1; i >= 0; i--) {
+            if (!removed.containsKey(ids[i])) {
+                maxDay = days[i];
+                break;
+            }
+        }
+        for (int i = 0; i < added; i++) {
+            maxDay = Math.max(maxDay, addedDays[i]);
+        }
+        return maxDay;
+    }
+
+    private void addEntry(long id, int day) {
+        if (added == addedIds.length) {
+            addedDays = Arrays.copyOf(addedDays, added * 2);
+            addedIds = Arrays.copyOf(addedIds, added * 2);
+        }
+        addedDays[added] = day;
+        addedIds[added++] = id;
+
+        if (added >= Math.max(MIN_MERGE_THRESHOLD, size >> 6)) {
+            merge();
+        }
+    }
+
+    private void removeEntry(long id, int day) {
+        for (int i = 0; i < added; i++) {
+            if (addedIds[i] == id) {
+                added--;
+                addedDays[i] = addedDays[added];
+                addedIds[i] = addedIds[added];
+                return;
+            }
+        }
+        removed.put(id, day);
+    }
+
+    private void merge() {
+        sortByDayAndId(addedDays, addedIds, added);
+
+        int capacity = size - removed.size() + added;
+        int[] mergedDays = new int[capacity];
+        long[] mergedIds = new long[capacity];
+        int merged = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size || j < added) {
+            if (i < size && removed.containsKey(ids[i])) {
+                i++;
+            } else if (j == added || (i < size && compare(days[i], ids[i], addedDays[j], addedIds[j]) < 0)) {
+                mergedDays[merged] = days[i];
+                mergedIds[merged++] = ids[i++];
+            } else {
+                mergedDays[merged] = addedDays[j];
+                mergedIds[merged++] = addedIds[j++];
+            }
+        }
+
+        days = mergedDays;
+        ids = mergedIds;
+        size = merged;
+        added = 0;
+        removed.clear();
+    }
+
+    private int lowerBound(int day) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (days[middle] < day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(int day) {
+        return day == Integer.MAX_VALUE ? size : lowerBound(day + 1);
+    }
+
+    private static int compare(int leftDay, long leftId, int rightDay, long rightId) {
+        int byDay = Integer.compare(leftDay, rightDay);
+        return byDay != 0 ? byDay : Long.compare(leftId, rightId);
+    }
+
+    /**
+     * Heapsorts the parallel arrays in place by (day, id), so no boxed index array is allocated.
+     */
+    private static void sortByDayAndId(int[] days, long[] ids, int length) {
+        for (int parent = length / 2 - 1; parent >= 0; parent--) {
+            siftDown(days, ids, parent, length);
+        }
+        for (int end = length - 1; end > 0; end--) {
+            swap(days, ids, 0, end);
+            siftDown(days, ids, 0, end);
+        }
+    }
+
+    private static void siftDown(int[] days, long[] ids, int parent, int length) {
+        while (true) {
+            int largest = parent;
+            int left = 2 * parent + 1;
+            int right = left + 1;
+            if (left < length && compare(days[left], ids[left], days[largest], ids[largest]) > 0) {
+                largest = left;
+            }
+            if (right < length && compare(days[right], ids[right], days[largest], ids[largest]) > 0) {
+                largest = right;
+            }
+            if (largest == parent) {
+                return;
+            }
+            swap(days, ids, parent, largest);
+            parent = largest;
+        }
+    }
+
+    private static void swap(int[] days, long[] ids, int left, int right) {
+        int day = days[left];
+        days[left] = days[right];
+        days[right] = day;
+        long id = ids[left];
+        ids[left] = ids[right];
+        ids[right] = id;
+    }
+}
@@ -0,0 +1,138 @@
+package ru.evotor.userservice.index;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing long to int map with linear probing, so indexes can keep per-id state
+ * without boxing a Long and an Integer for every user.
+ */
+final class LongIntHashMap {
+    static final int MISSING = Integer.MIN_VALUE;
+
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    LongIntHashMap() {
+        this(16);
+    }
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+    }
+
+    int get(long key) {
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        return MISSING;
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != MISSING;
+    }
+
+    void put(long key, int value) {
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    int remove(long key) {
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                int value = values[slot];
+                shiftBack(slot);
+                size--;
+                return value;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        return MISSING;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    void forEach(EntryConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    long memoryBytes() {
+        return 32 + 16 + 8L * keys.length + 16 + 4L * values.length;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (keys.length - 1);
+    }
+
+    private void shiftBack(int emptied) {
+        int mask = keys.length - 1;
+        int slot = emptied;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (keys[slot] == FREE) {
+                break;
+            }
+
+            int home = slot(keys[slot]);
+            boolean movable = emptied <= slot ? home <= emptied || home > slot : home <= emptied && home > slot;
+            if (movable) {
+                keys[emptied] = keys[slot];
+                values[emptied] = values[slot];
+                emptied = slot;
+            }
+        }
+        keys[emptied] = FREE;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, FREE);
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != FREE) {
+                put(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    interface EntryConsumer {
+        void accept(long key, int value);
+    }
+}
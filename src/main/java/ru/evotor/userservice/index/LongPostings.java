@@ -0,0 +1,89 @@
+package ru.evotor.userservice.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+final class LongPostings {
+    private static final long[] EMPTY = new long[0];
+
+    private long[] ids = new long[2];
+    private int size;
+
+    boolean add(long id) {
+        if (size == 0 || ids[size - 1] < id) {
+            ensureCapacity();
+            ids[size++] = id;
+            return true;
+        }
+
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0) {
+            return false;
+        }
+
+        int insertAt = -position - 1;
+        ensureCapacity();
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+        return true;
+    }
+
+    boolean remove(long id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position < 0) {
+            return false;
+        }
+
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        size--;
+        return true;
+    }
+
+    boolean contains(long id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    long memoryBytes() {
+        return 32 + 16 + 8L * ids.length;
+    }
+
+    static long[] intersect(LongPostings... postings) {
+        if (postings.length == 0) {
+            return EMPTY;
+        }
+
+        LongPostings[] bySize = postings.clone();
+        Arrays.sort(bySize, Comparator.comparingInt(LongPostings::size));
+
+        LongPostings smallest = bySize[0];
+        long[] result = new long[smallest.size];
+        int resultSize = 0;
+        for (int i = 0; i < smallest.size; i++) {
+            long id = smallest.ids[i];
+            boolean inAll = true;
+            for (int j = 1; j < bySize.length && inAll; j++) {
+                inAll = bySize[j].contains(id);
+            }
+            if (inAll) {
+                result[resultSize++] = id;
+            }
+        }
+
+        return resultSize == result.length ? result : Arrays.copyOf(result, resultSize);
+    }
+
+    private void ensureCapacity() {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length + (ids.length >> 1) + 1);
+        }
+    }
+}
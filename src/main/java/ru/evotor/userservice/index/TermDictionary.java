@@ -0,0 +1,77 @@
+package ru.evotor.userservice.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns index terms to dense int ids, so per-user state can be kept in primitive arrays instead of a
+ * {@code String[]} per user. The uses of every term are counted and its id is reused once the last one is released.
+ */
+final class TermDictionary {
+    static final int NO_TERM = -1;
+
+    private final Map<String, Integer> idsByTerm = new HashMap<>();
+
+    private String[] terms = new String[16];
+    private int[] uses = new int[16];
+    private int[] freeIds = new int[16];
+    private int freeIdCount;
+    private int nextId;
+
+    int acquire(String term) {
+        if (term == null) {
+            return NO_TERM;
+        }
+
+        Integer id = idsByTerm.get(term);
+        if (id == null) {
+            id = newId();
+            terms[id] = term;
+            idsByTerm.put(term, id);
+        }
+        uses[id]++;
+        return id;
+    }
+
+    void release(int id) {
+        if (id == NO_TERM || --uses[id] > 0) {
+            return;
+        }
+
+        idsByTerm.remove(terms[id]);
+        terms[id] = null;
+        if (freeIdCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        }
+        freeIds[freeIdCount++] = id;
+    }
+
+    String term(int id) {
+        return id == NO_TERM ? null : terms[id];
+    }
+
+    int size() {
+        return idsByTerm.size();
+    }
+
+    /**
+     * The term strings themselves are shared with the postings maps and are not counted here.
+     */
+    long memoryBytes() {
+        return 48 + 8L * idsByTerm.size() * 2 + (32 + 16) * (long) idsByTerm.size()
+                + 16 + 4L * terms.length + 16 + 4L * uses.length + 16 + 4L * freeIds.length;
+    }
+
+    private int newId() {
+        if (freeIdCount > 0) {
+            return freeIds[--freeIdCount];
+        }
+
+        if (nextId == terms.length) {
+            terms = Arrays.copyOf(terms, terms.length * 2);
+            uses = Arrays.copyOf(uses, uses.length * 2);
+        }
+        return nextId++;
+    }
+}
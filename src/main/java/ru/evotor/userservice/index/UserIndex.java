@@ -0,0 +1,15 @@
+package ru.evotor.userservice.index;
+
+import ru.evotor.userservice.model.User;
+
+public interface UserIndex {
+    boolean isEnabled();
+
+    boolean isReady();
+
+    void markReady();
+
+    void put(User user);
+
+    void remove(long id);
+}
@@ -0,0 +1,175 @@
+package ru.evotor.userservice.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.evotor.userservice.model.User;
+import ru.evotor.userservice.model.UserChange;
+import ru.evotor.userservice.model.UserChangeBatch;
+import ru.evotor.userservice.repository.UserRowMapper;
+import ru.evotor.userservice.service.UserChangeService;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Loads the indexes from a snapshot of the users table and then keeps them in sync with the change feed of
+ * {@link UserChangeService}.
+ * <p>
+ * The indexes belong to one instance. Writes of this instance are put into them at once by the services, but
+ * a row read by the snapshot may be put after a concurrent write of this instance was applied, and writes of
+ * other instances never reach them directly. Both are repaired by replaying the feed from the cursor taken in
+ * the snapshot's transaction: every changed user is read again and put, or removed when it is gone. The
+ * indexes therefore match the table up to {@code user-service.index.sync-interval-ms}.
+ */
+@Component
+public class UserIndexLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(UserIndexLoader.class);
+
+    private static final String SELECT_ALL_USERS_SQL = "select " + UserRowMapper.USER_COLUMNS + " from users";
+
+    private static final String SELECT_USERS_BY_IDS_SQL =
+            "select " + UserRowMapper.USER_COLUMNS + " from users where id in (:ids)";
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final int CHANGES_LIMIT = 1000;
+
+    private final List<UserIndex> userIndexes;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final UserChangeService userChangeService;
+
+    private final long syncIntervalMillis;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-index-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private List<UserIndex> enabledIndexes = List.of();
+
+    private String cursor;
+
+    @Autowired
+    public UserIndexLoader(List<UserIndex> userIndexes, DataSource dataSource,
+                           PlatformTransactionManager transactionManager, UserChangeService userChangeService,
+                           @Value("${user-service.index.sync-interval-ms}") long syncIntervalMillis) {
+        this.userIndexes = userIndexes;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        // Not read-only, so that the snapshot is read on the primary and not on a lagging replica.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.userChangeService = userChangeService;
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndexes() {
+        List<UserIndex> indexes = userIndexes.stream().filter(UserIndex::isEnabled).collect(Collectors.toList());
+        if (indexes.isEmpty()) {
+            return;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        long[] users = new long[1];
+        String snapshotCursor = transactionTemplate.execute(status -> {
+            String changesCursor = userChangeService.currentCursor();
+            jdbcTemplate.query(SELECT_ALL_USERS_SQL, rs -> {
+                User user = UserRowMapper.INSTANCE.mapRow(rs, 0);
+                for (UserIndex userIndex : indexes) {
+                    userIndex.put(user);
+                }
+                users[0]++;
+            });
+            return changesCursor;
+        });
+
+        synchronized (this) {
+            enabledIndexes = indexes;
+            cursor = snapshotCursor;
+        }
+        syncChanges();
+        indexes.forEach(UserIndex::markReady);
+        scheduler.scheduleWithFixedDelay(this::syncChangesSafely, syncIntervalMillis, syncIntervalMillis,
+                TimeUnit.MILLISECONDS);
+
+        log.info("User indexes loaded from {} users in {} ms", users[0], System.currentTimeMillis() - startedAt);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Applies the changes after the cursor: users that still exist are read again and put, the others are
+     * removed.
+     */
+    synchronized void syncChanges() {
+        if (cursor == null) {
+            return;
+        }
+
+        UserChangeBatch batch;
+        do {
+            batch = userChangeService.awaitChanges(cursor, CHANGES_LIMIT, null).join();
+            Set<Long> ids = batch.getChanges().stream()
+                    .map(UserChange::getUserId)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            if (!ids.isEmpty()) {
+                Map<Long, User> usersById = new HashMap<>();
+                namedParameterJdbcTemplate.query(SELECT_USERS_BY_IDS_SQL, Map.of("ids", ids), rs -> {
+                    User user = UserRowMapper.INSTANCE.mapRow(rs, 0);
+                    usersById.put(user.getId(), user);
+                });
+                for (Long id : ids) {
+                    User user = usersById.get(id);
+                    for (UserIndex userIndex : enabledIndexes) {
+                        if (user != null) {
+                            userIndex.put(user);
+                        } else {
+                            userIndex.remove(id);
+                        }
+                    }
+                }
+            }
+            cursor = batch.getCursor();
+        } while (batch.getChanges().size() == CHANGES_LIMIT);
+    }
+
+    private void syncChangesSafely() {
+        try {
+            syncChanges();
+        } catch (RuntimeException e) {
+            log.warn("Failed to apply user changes to the indexes", e);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package ru.evotor.userservice.index;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.evotor.userservice.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from normalized name parts to sorted user id postings. The terms every user was
+ * indexed with are kept by id, so an update moves its postings and a delete drops them. They are kept as
+ * interned term ids in a row of primitive arrays per user, which costs a few dozen bytes instead of a
+ * {@code String[]} with its strings.
+ */
+@Component
+public class UserNameIndex implements UserIndex, MeterBinder {
+
+    private static final long[] EMPTY = new long[0];
+
+    private static final int FIELDS = 3;
+
+    private final boolean enabled;
+
+    private final Map<String, LongPostings> firstNames = new HashMap<>();
+
+    private final Map<String, LongPostings> lastNames = new HashMap<>();
+
+    private final Map<String, LongPostings> patronymics = new HashMap<>();
+
+    private final List<Map<String, LongPostings>> postingsByField = List.of(firstNames, lastNames, patronymics);
+
+    private final TermDictionary dictionary = new TermDictionary();
+
+    private final LongIntHashMap rowsById = new LongIntHashMap();
+
+    private long[] rowIds = new long[16];
+
+    private int[] rowTermIds = new int[16 * FIELDS];
+
+    private int rows;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    @Autowired
+    public UserNameIndex(@Value("${user-service.index.name.enabled}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void markReady() {
+        ready = enabled;
+    }
+
+    @Override
+    public void put(User user) {
+        if (!enabled) {
+            return;
+        }
+
+        long id = user.getId();
+        String[] terms = {term(user.getFirstName()), term(user.getLastName()), term(user.getPatronymic())};
+        lock.writeLock().lock();
+        try {
+            int row = rowsById.get(id);
+            boolean indexed = row != LongIntHashMap.MISSING;
+            if (!indexed) {
+                row = addRow(id);
+            }
+            for (int field = 0; field < FIELDS; field++) {
+                int termId = dictionary.acquire(terms[field]);
+                if (indexed) {
+                    int previous = rowTermIds[row * FIELDS + field];
+                    if (previous != termId) {
+                        removePosting(postingsByField.get(field), dictionary.term(previous), id);
+                    }
+                    dictionary.release(previous);
+                }
+                rowTermIds[row * FIELDS + field] = termId;
+                addPosting(postingsByField.get(field), dictionary.term(termId), id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            int row = rowsById.remove(id);
+            if (row != LongIntHashMap.MISSING) {
+                for (int field = 0; field < FIELDS; field++) {
+                    int termId = rowTermIds[row * FIELDS + field];
+                    removePosting(postingsByField.get(field), dictionary.term(termId), id);
+                    dictionary.release(termId);
+                }
+                removeRow(row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long[] find(String firstName, String lastName, String patronymic) {
+        lock.readLock().lock();
+        try {
+            List<LongPostings> postings = new ArrayList<>(3);
+            if (!collectPostings(postings, firstNames, firstName)
+                    || !collectPostings(postings, lastNames, lastName)
+                    || !collectPostings(postings, patronymics, patronymic)) {
+                return EMPTY;
+            }
+            return LongPostings.intersect(postings.toArray(new LongPostings[0]));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getTerms() {
+        lock.readLock().lock();
+        try {
+            return firstNames.size() + lastNames.size() + patronymics.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getEstimatedMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            return memoryBytes(firstNames) + memoryBytes(lastNames) + memoryBytes(patronymics)
+                    + termsMemoryBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.index.memory", this, UserNameIndex::getEstimatedMemoryBytes)
+                .tag("index", "name")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("user.index.terms", this, UserNameIndex::getTerms)
+                .tag("index", "name")
+                .register(registry);
+    }
+
+    static String normalize(String value) {
+        return value.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private static String term(String value) {
+        return value == null ? null : normalize(value);
+    }
+
+    private static void addPosting(Map<String, LongPostings> postings, String term, long id) {
+        if (term != null) {
+            postings.computeIfAbsent(term, key -> new LongPostings()).add(id);
+        }
+    }
+
+    private static boolean collectPostings(List<LongPostings> result, Map<String, LongPostings> postings, String value) {
+        if (value == null) {
+            return true;
+        }
+
+        LongPostings termPostings = postings.get(normalize(value));
+        if (termPostings == null) {
+            return false;
+        }
+
+        result.add(termPostings);
+        return true;
+    }
+
+    private static void removePosting(Map<String, LongPostings> postings, String term, long id) {
+        if (term == null) {
+            return;
+        }
+
+        LongPostings termPostings = postings.get(term);
+        if (termPostings != null && termPostings.remove(id) && termPostings.size() == 0) {
+            postings.remove(term);
+        }
+    }
+
+    private static long memoryBytes(Map<String, LongPostings> postings) {
+        long bytes = 48 + 8L * postings.size() * 2;
+        for (Map.Entry<String, LongPostings> entry : postings.entrySet()) {
+            bytes += 32 + 40 + 2L * entry.getKey().length() + entry.getValue().memoryBytes();
+        }
+        return bytes;
+    }
+
+    private long termsMemoryBytes() {
+        return rowsById.memoryBytes() + 16 + 8L * rowIds.length + 16 + 4L * rowTermIds.length
+                + dictionary.memoryBytes();
+    }
+
+    private int addRow(long id) {
+        if (rows == rowIds.length) {
+            rowIds = Arrays.copyOf(rowIds, rows * 2);
+            rowTermIds = Arrays.copyOf(rowTermIds, rows * 2 * FIELDS);
+        }
+        rowIds[rows] = id;
+        rowsById.put(id, rows);
+        return rows++;
+    }
+
+    /**
+     * Moves the last row into the removed one, so the rows stay dense.
+     */
+    private void removeRow(int row) {
+        int last = --rows;
+        if (row != last) {
+            rowIds[row] = rowIds[last];
+            System.arraycopy(rowTermIds, last * FIELDS, rowTermIds, row * FIELDS, FIELDS);
+            rowsById.put(rowIds[row], row);
+        }
+    }
+}
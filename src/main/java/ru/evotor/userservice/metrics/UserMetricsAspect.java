@@ -0,0 +1,88 @@
+package ru.evotor.userservice.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+@Aspect
+@Component
+public class UserMetricsAspect {
+
+    public static final String SERVICE_METRIC = "user.service";
+
+    public static final String REPOSITORY_METRIC = "user.repository";
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<Method, MethodTimers> serviceTimers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Method, MethodTimers> repositoryTimers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UserMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * ru.evotor.userservice.service.UserService.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, serviceTimers, SERVICE_METRIC);
+    }
+
+    @Around("this(ru.evotor.userservice.repository.UserRepo) && execution(public * *(..)) " +
+            "&& !execution(* java.lang.Object.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, repositoryTimers, REPOSITORY_METRIC);
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, ConcurrentMap<Method, MethodTimers> timers, String metric)
+            throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        MethodTimers methodTimers = timers.get(method);
+        if (methodTimers == null) {
+            methodTimers = timers.computeIfAbsent(method, m -> new MethodTimers(meterRegistry, metric, m.getName()));
+        }
+
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            Timer outcome = result instanceof Optional && ((Optional<?>) result).isEmpty()
+                    ? methodTimers.notFound
+                    : methodTimers.success;
+            outcome.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            methodTimers.error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private static class MethodTimers {
+        private final Timer success;
+        private final Timer notFound;
+        private final Timer error;
+
+        MethodTimers(MeterRegistry meterRegistry, String metric, String method) {
+            success = timer(meterRegistry, metric, method, "success");
+            notFound = timer(meterRegistry, metric, method, "not_found");
+            error = timer(meterRegistry, metric, method, "error");
+        }
+
+        private static Timer timer(MeterRegistry meterRegistry, String metric, String method, String outcome) {
+            return Timer.builder(metric)
+                    .tag("method", method)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ru.evotor.userservice.model;
+
+public class ImportProgress {
+    private final int batches;
+    private final long importedRows;
+    private final long rejectedRows;
+    private final long elapsedMillis;
+
+    public ImportProgress(int batches, long importedRows, long rejectedRows, long elapsedMillis) {
+        this.batches = batches;
+        this.importedRows = importedRows;
+        this.rejectedRows = rejectedRows;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public long getImportedRows() {
+        return importedRows;
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.evotor.userservice.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportReport {
+    private static final int MAX_REPORTED_REJECTED_ROWS = 1000;
+
+    private long importedRows;
+    private long rejectedRows;
+    private int batches;
+    private long elapsedMillis;
+    private String error;
+    private final List<RejectedRow> rejected = new ArrayList<>();
+
+    public void addBatch(int rows) {
+        importedRows += rows;
+        batches++;
+    }
+
+    public void reject(long lineNumber, String reason) {
+        rejectedRows++;
+        if (rejected.size() < MAX_REPORTED_REJECTED_ROWS) {
+            rejected.add(new RejectedRow(lineNumber, reason));
+        }
+    }
+
+    /**
+     * Records why the import stopped; the rows imported so far are the ones committed.
+     */
+    public void fail(String error) {
+        this.error = error;
+    }
+
+    public long getImportedRows() {
+        return importedRows;
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getRowsPerSecond() {
+        return elapsedMillis == 0 ? importedRows : importedRows * 1000 / elapsedMillis;
+    }
+
+    public List<RejectedRow> getRejected() {
+        return rejected;
+    }
+
+    public static class RejectedRow {
+        private final long line;
+        private final String reason;
+
+        public RejectedRow(long line, String reason) {
+            this.line = line;
+            this.reason = reason;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
@@ -1,16 +1,22 @@
 package ru.evotor.userservice.model;
 
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import ru.evotor.userservice.entity.UserEntity;
 
 import java.util.Date;
 import java.util.Objects;
 
+/**
+ * Fields are written in this order in JSON, CBOR and Smile alike, whatever order reflection finds them in.
+ */
+@JsonPropertyOrder({"id", "firstName", "lastName", "patronymic", "dateOfBirth", "version"})
 public class User {
     private Long id;
     private String firstName;
     private String lastName;
     private String patronymic;
     private Date dateOfBirth;
+    private Long version;
 
     public static User toModel(UserEntity entity) {
         User model = new User();
@@ -19,6 +25,7 @@ public class User {
         model.setLastName(entity.getLastName());
         model.setPatronymic(entity.getPatronymic());
         model.setDateOfBirth(entity.getDateOfBirth());
+        model.setVersion(entity.getVersion());
         return model;
     }
 
@@ -42,6 +49,11 @@ public class User {
         this.dateOfBirth = dateOfBirth;
     }
 
+    public User(Long id, String firstName, String lastName, String patronymic, Date dateOfBirth, Long version) {
+        this(id, firstName, lastName, patronymic, dateOfBirth);
+        this.version = version;
+    }
+
     public Long getId() {
         return id;
     }
@@ -82,6 +94,14 @@ public class User {
         this.dateOfBirth = dateOfBirth;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("User{");
@@ -90,6 +110,7 @@ public class User {
         sb.append(", lastName='").append(lastName).append('\'');
         sb.append(", patronymic='").append(patronymic).append('\'');
         sb.append(", dateOfBirth=").append(dateOfBirth);
+        sb.append(", version=").append(version);
         sb.append('}');
         return sb.toString();
     }
@@ -99,15 +120,16 @@ public class User {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         User user = (User) o;
-        return id.equals(user.id) &&
-                firstName.equals(user.firstName) &&
-                lastName.equals(user.lastName) &&
-                patronymic.equals(user.patronymic) &&
-                dateOfBirth.equals(user.dateOfBirth);
+        return Objects.equals(id, user.id) &&
+                Objects.equals(firstName, user.firstName) &&
+                Objects.equals(lastName, user.lastName) &&
+                Objects.equals(patronymic, user.patronymic) &&
+                Objects.equals(dateOfBirth, user.dateOfBirth) &&
+                Objects.equals(version, user.version);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, firstName, lastName, patronymic, dateOfBirth);
+        return Objects.hash(id, firstName, lastName, patronymic, dateOfBirth, version);
     }
 }
@@ -0,0 +1,21 @@
+package ru.evotor.userservice.model;
+
+import java.util.List;
+
+public class UserBatch {
+    private final List<User> users;
+    private final List<Long> missingIds;
+
+    public UserBatch(List<User> users, List<Long> missingIds) {
+        this.users = users;
+        this.missingIds = missingIds;
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+}
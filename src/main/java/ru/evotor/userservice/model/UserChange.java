@@ -0,0 +1,42 @@
+package ru.evotor.userservice.model;
+
+import java.util.Date;
+
+public class UserChange {
+    private final long id;
+    private final long userId;
+    private final String operation;
+    private final Long version;
+    private final Date changedAt;
+
+    public UserChange(long id, long userId, String operation, Long version, Date changedAt) {
+        this.id = id;
+        this.userId = userId;
+        this.operation = operation;
+        this.version = version;
+        this.changedAt = changedAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    /**
+     * {@code INSERT}, {@code UPDATE} or {@code DELETE}.
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public Date getChangedAt() {
+        return changedAt;
+    }
+}
@@ -0,0 +1,24 @@
+package ru.evotor.userservice.model;
+
+import java.util.List;
+
+public class UserChangeBatch {
+    private final List<UserChange> changes;
+    private final String cursor;
+
+    public UserChangeBatch(List<UserChange> changes, String cursor) {
+        this.changes = changes;
+        this.cursor = cursor;
+    }
+
+    public List<UserChange> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Position after the last change of the batch, to be passed as {@code after} to get the next batch.
+     */
+    public String getCursor() {
+        return cursor;
+    }
+}
@@ -0,0 +1,265 @@
+package ru.evotor.userservice.repository;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.evotor.userservice.model.User;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking counterpart of {@link UserRepo} for the reactive runtime mode. Runs the same SQL as the
+ * JPA queries and {@link UserRepoCustomImpl} through R2DBC and maps rows to the {@link User} model.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserRepo {
+
+    private static final String SELECT_USERS = "select " + UserRowMapper.USER_COLUMNS + " from users ";
+
+    private static final String INSERT_USER_SQL = "insert into users(first_name, last_name, patronymic, date_of_birth)" +
+            " values (:firstName, :lastName, :patronymic, :dateOfBirth) returning " + UserRowMapper.USER_COLUMNS;
+
+    private static final String INSERT_USERS_SQL = "insert into users(first_name, last_name, patronymic, date_of_birth)" +
+            " values ($1, $2, $3, $4) returning " + UserRowMapper.USER_COLUMNS;
+
+    private final DatabaseClient databaseClient;
+
+    private final TransactionalOperator transactionalOperator;
+
+    @Autowired
+    public ReactiveUserRepo(DatabaseClient databaseClient, ConnectionFactory connectionFactory) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+
+    public Flux<User> findAllByOrderByIdAsc() {
+        return databaseClient.sql(SELECT_USERS + "order by id")
+                .map(ReactiveUserRepo::toUser)
+                .all();
+    }
+
+    public Flux<User> findByIdGreaterThanOrderByIdAsc(long afterId, int limit) {
+        return databaseClient.sql(SELECT_USERS + "where id > :afterId order by id limit :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveUserRepo::toUser)
+                .all();
+    }
+
+    public Mono<User> findById(long id) {
+        return databaseClient.sql(SELECT_USERS + "where id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepo::toUser)
+                .one();
+    }
+
+    public Flux<User> findByIdIn(List<Long> ids) {
+        return databaseClient.sql(SELECT_USERS + "where id = any(:ids)")
+                .bind("ids", ids.toArray(new Long[0]))
+                .map(ReactiveUserRepo::toUser)
+                .all();
+    }
+
+    public Mono<Boolean> existsById(long id) {
+        return databaseClient.sql("select exists(select 1 from users where id = :id)")
+                .bind("id", id)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    /**
+     * Finds users whose name parts equal all of the given non-null parts.
+     */
+    public Flux<User> findByNameParts(String firstName, String lastName, String patronymic) {
+        Map<String, String> conditions = new LinkedHashMap<>();
+        if (firstName != null) {
+            conditions.put("first_name", firstName);
+        }
+        if (lastName != null) {
+            conditions.put("last_name", lastName);
+        }
+        if (patronymic != null) {
+            conditions.put("patronymic", patronymic);
+        }
+
+        List<String> predicates = new ArrayList<>(conditions.size());
+        conditions.keySet().forEach(column -> predicates.add(column + " = :" + column));
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(SELECT_USERS + "where " + String.join(" and ", predicates));
+        for (Map.Entry<String, String> condition : conditions.entrySet()) {
+            spec = spec.bind(condition.getKey(), condition.getValue());
+        }
+        return spec.map(ReactiveUserRepo::toUser).all();
+    }
+
+    public Flux<User> findByDateOfBirthBetween(Date dateFrom, Date dateTo) {
+        return databaseClient.sql(SELECT_USERS + "where date_of_birth between :dateFrom and :dateTo")
+                .bind("dateFrom", toLocalDate(dateFrom))
+                .bind("dateTo", toLocalDate(dateTo))
+                .map(ReactiveUserRepo::toUser)
+                .all();
+    }
+
+    public Mono<Long> countByDateOfBirthBetween(Date dateFrom, Date dateTo) {
+        return databaseClient.sql("select count(*) from users where date_of_birth between :dateFrom and :dateTo")
+                .bind("dateFrom", toLocalDate(dateFrom))
+                .bind("dateTo", toLocalDate(dateTo))
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    public Flux<Object[]> countByYearOfBirth(Date dateFrom, Date dateTo) {
+        return databaseClient.sql("select extract(year from date_of_birth)::int, count(*) from users" +
+                " where date_of_birth between :dateFrom and :dateTo group by 1")
+                .bind("dateFrom", toLocalDate(dateFrom))
+                .bind("dateTo", toLocalDate(dateTo))
+                .map(row -> new Object[]{row.get(0, Integer.class), row.get(1, Long.class)})
+                .all();
+    }
+
+    public Flux<User> searchByName(String query, int limit) {
+        String escapedQuery = UserRepoCustomImpl.escapeLike(query);
+
+        return databaseClient.sql(UserRepoCustomImpl.SEARCH_BY_NAME_SQL)
+                .bind("query", query)
+                .bind("prefix", escapedQuery + "%")
+                .bind("wordPrefix", "% " + escapedQuery + "%")
+                .bind("limit", limit)
+                .map(ReactiveUserRepo::toUser)
+                .all();
+    }
+
+    public Mono<User> insert(User user) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(INSERT_USER_SQL);
+        spec = bind(spec, "firstName", user.getFirstName(), String.class);
+        spec = bind(spec, "lastName", user.getLastName(), String.class);
+        spec = bind(spec, "patronymic", user.getPatronymic(), String.class);
+        spec = bind(spec, "dateOfBirth", toLocalDate(user.getDateOfBirth()), LocalDate.class);
+        return spec.map(ReactiveUserRepo::toUser).one();
+    }
+
+    /**
+     * Inserts all users in one transaction, so either all of them are created or none. Every user is a binding
+     * added to one statement, which is parsed once and returns the created users in the given order.
+     */
+    public Flux<User> insertAll(List<User> users) {
+        return transactionalOperator.transactional(databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(INSERT_USERS_SQL);
+            for (int i = 0; i < users.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                User user = users.get(i);
+                bind(statement, 0, user.getFirstName(), String.class);
+                bind(statement, 1, user.getLastName(), String.class);
+                bind(statement, 2, user.getPatronymic(), String.class);
+                bind(statement, 3, toLocalDate(user.getDateOfBirth()), LocalDate.class);
+            }
+            return Flux.from(statement.execute()).concatMap(result -> result.map((row, metadata) -> toUser(row)));
+        }));
+    }
+
+    /**
+     * Reactive version of {@link UserRepoCustom#updateNonNullFields}: completes empty when there is no
+     * user with such id, or with such id and version if the version is given.
+     */
+    public Mono<User> updateNonNullFields(User user) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (user.getFirstName() != null) {
+            values.put("first_name", user.getFirstName());
+        }
+        if (user.getLastName() != null) {
+            values.put("last_name", user.getLastName());
+        }
+        if (user.getPatronymic() != null) {
+            values.put("patronymic", user.getPatronymic());
+        }
+        if (user.getDateOfBirth() != null) {
+            values.put("date_of_birth", toLocalDate(user.getDateOfBirth()));
+        }
+
+        String condition = " where id = :id" + (user.getVersion() != null ? " and version = :version" : "");
+
+        String sql;
+        if (values.isEmpty()) {
+            sql = SELECT_USERS + condition;
+        } else {
+            StringBuilder assignments = new StringBuilder();
+            values.keySet().forEach(column -> assignments.append(column).append(" = :").append(column).append(", "));
+            sql = "update users set " + assignments + "version = version + 1" + condition +
+                    " returning " + UserRowMapper.USER_COLUMNS;
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql).bind("id", user.getId());
+        if (user.getVersion() != null) {
+            spec = spec.bind("version", user.getVersion());
+        }
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            spec = spec.bind(value.getKey(), value.getValue());
+        }
+        return spec.map(ReactiveUserRepo::toUser).one();
+    }
+
+    public Mono<Integer> deleteUserById(long id) {
+        return databaseClient.sql("delete from users where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> deleteUsersByIdIn(List<Long> ids) {
+        return databaseClient.sql("delete from users where id = any(:ids)")
+                .bind("ids", ids.toArray(new Long[0]))
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static User toUser(Row row) {
+        LocalDate dateOfBirth = row.get("date_of_birth", LocalDate.class);
+        return new User(
+                row.get("id", Long.class),
+                row.get("first_name", String.class),
+                row.get("last_name", String.class),
+                row.get("patronymic", String.class),
+                dateOfBirth == null ? null : java.sql.Date.valueOf(dateOfBirth),
+                row.get("version", Long.class));
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        if (date == null) {
+            return null;
+        }
+        if (date instanceof java.sql.Date) {
+            return ((java.sql.Date) date).toLocalDate();
+        }
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static <T> void bind(Statement statement, int index, T value, Class<T> type) {
+        if (value == null) {
+            statement.bindNull(index, type);
+        } else {
+            statement.bind(index, value);
+        }
+    }
+
+    private static <T> DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name,
+                                                          T value, Class<T> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+}
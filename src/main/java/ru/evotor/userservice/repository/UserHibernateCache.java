@@ -0,0 +1,72 @@
+package ru.evotor.userservice.repository;
+
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.evotor.userservice.config.ReplicaRoutingDataSource;
+import ru.evotor.userservice.entity.UserEntity;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Keeps Hibernate's second-level and query caches consistent with writes to {@code users} that Hibernate does
+ * not fully track. Only evicting after such a write is not enough: a load that read the old row before the
+ * commit could put it back afterwards.
+ */
+@Component
+public class UserHibernateCache {
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    private final EntityPersister userPersister;
+
+    private final String[] userSpaces;
+
+    @Autowired
+    public UserHibernateCache(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.userPersister = sessionFactory.getMetamodel().entityPersister(UserEntity.class);
+        this.userSpaces = Arrays.stream(userPersister.getQuerySpaces()).map(String::valueOf).toArray(String[]::new);
+    }
+
+    /**
+     * Soft-locks the cached user until the transaction of the entity manager completes, as Hibernate does for
+     * an entity update, so that a load which read the row before the commit can not cache it. Called after a
+     * bulk update of the user, which empties the region but does not lock it.
+     */
+    public void lockUntilCompletion(EntityManager entityManager, long id) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityDataAccess cacheAccess = userPersister.getCacheAccessStrategy();
+        Object key = cacheAccess.generateCacheKey(id, userPersister, sessionFactory, session.getTenantIdentifier());
+        SoftLock lock = cacheAccess.lockItem(session, key, null);
+        session.getActionQueue().registerProcess((success, completedSession) ->
+                cacheAccess.unlockItem(completedSession, key, lock));
+    }
+
+    /**
+     * Runs a write to {@code users} made outside Hibernate, which must be committed when it returns. Cached
+     * query results are invalidated before and after it, as Hibernate does around its own bulk writes, and
+     * the write is registered with {@link ReplicaRoutingDataSource} like a read-write transaction.
+     */
+    public <T> T write(Supplier<T> write) {
+        TimestampsCache timestampsCache = sessionFactory.getCache().getTimestampsCache();
+        try (SessionImplementor session = (SessionImplementor) sessionFactory.openSession()) {
+            timestampsCache.preInvalidate(userSpaces, session);
+            ReplicaRoutingDataSource.beginWrite();
+            try {
+                return write.get();
+            } finally {
+                ReplicaRoutingDataSource.endWrite();
+                timestampsCache.invalidate(userSpaces, session);
+            }
+        }
+    }
+}
@@ -1,19 +1,101 @@
 package ru.evotor.userservice.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.evotor.userservice.entity.UserEntity;
+import ru.evotor.userservice.model.User;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface UserRepo extends CrudRepository<UserEntity, Long> {
-    List<UserEntity> findByLastName(String lastName);
-    List<UserEntity> findByFirstName(String firstName);
-    List<UserEntity> findByPatronymic(String firstName);
-    List<UserEntity> findByFirstNameAndLastName(String firstName, String lastName);
-    List<UserEntity> findByFirstNameAndPatronymic(String firstName, String patronymic);
-    List<UserEntity> findByFirstNameAndLastNameAndPatronymic(String firstName, String lastName, String patronymic);
-    List<UserEntity> findByDateOfBirthBetween(Date dateFrom, Date dateTo);
-    List<UserEntity> findByDateOfBirth(Date dateOfBirth);
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+/**
+ * Finders marked with {@code HINT_CACHEABLE} are served from Hibernate's query cache until the next write
+ * to {@code users}.
+ */
+public interface UserRepo extends CrudRepository<UserEntity, Long>, UserRepoCustom {
+    String SELECT_USER_MODEL = "select new ru.evotor.userservice.model.User(" +
+            "u.id, u.firstName, u.lastName, u.patronymic, u.dateOfBirth, u.version) from UserEntity u ";
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(SELECT_USER_MODEL + "where u.lastName = ?1")
+    List<User> findByLastName(String lastName);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(SELECT_USER_MODEL + "where u.firstName = ?1")
+    List<User> findByFirstName(String firstName);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(SELECT_USER_MODEL + "where u.patronymic = ?1")
+    List<User> findByPatronymic(String patronymic);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(SELECT_USER_MODEL + "where u.firstName = ?1 and u.lastName = ?2")
+    List<User> findByFirstNameAndLastName(String firstName, String lastName);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(SELECT_USER_MODEL + "where u.firstName = ?1 and u.patronymic = ?2")
+    List<User> findByFirstNameAndPatronymic(String firstName, String patronymic);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(SELECT_USER_MODEL + "where u.firstName = ?1 and u.lastName = ?2 and u.patronymic = ?3")
+    List<User> findByFirstNameAndLastNameAndPatronymic(String firstName, String lastName, String patronymic);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(SELECT_USER_MODEL + "where u.dateOfBirth between ?1 and ?2")
+    List<User> findByDateOfBirthBetween(Date dateFrom, Date dateTo);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(SELECT_USER_MODEL + "where u.dateOfBirth = ?1")
+    List<User> findByDateOfBirth(Date dateOfBirth);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select count(u) from UserEntity u where u.dateOfBirth between ?1 and ?2")
+    long countByDateOfBirthBetween(Date dateFrom, Date dateTo);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select year(u.dateOfBirth), count(u) from UserEntity u where u.dateOfBirth between ?1 and ?2 " +
+            "group by year(u.dateOfBirth)")
+    List<Object[]> countByYearOfBirth(Date dateFrom, Date dateTo);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select year(u.dateOfBirth), count(u) from UserEntity u group by year(u.dateOfBirth)")
+    List<Object[]> countAllByYearOfBirth();
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select u.lastName, count(u) from UserEntity u group by u.lastName order by count(u) desc, u.lastName asc")
+    List<Object[]> countByLastName(Pageable pageable);
+
+    @Query(SELECT_USER_MODEL + "where u.id in ?1")
+    List<User> findUsersByIdIn(Collection<Long> ids);
+
+    @Query(SELECT_USER_MODEL + "where u.id > ?1 order by u.id asc")
+    List<User> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    Stream<UserEntity> streamAllByOrderByIdAsc();
+
+    @Modifying
+    @Transactional
+    @Query("delete from UserEntity u where u.id = ?1")
+    int deleteUserById(Long id);
+
+    @Modifying
+    @Transactional
+    @Query("delete from UserEntity u where u.id in ?1")
+    int deleteUsersByIdIn(Collection<Long> ids);
 
 }
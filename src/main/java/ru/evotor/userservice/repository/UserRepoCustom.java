@@ -0,0 +1,24 @@
+package ru.evotor.userservice.repository;
+
+import org.springframework.transaction.annotation.Transactional;
+import ru.evotor.userservice.model.User;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public interface UserRepoCustom {
+    @Transactional
+    Optional<User> updateNonNullFields(User user);
+
+    List<User> searchByName(String query, int limit);
+
+    /**
+     * Passes users whose name parts equal all of the given non-null parts to the consumer while the rows are
+     * fetched. Only fetches incrementally inside a transaction.
+     */
+    void streamByNameParts(String firstName, String lastName, String patronymic, Consumer<User> consumer);
+
+    void streamByDateOfBirthBetween(Date dateFrom, Date dateTo, Consumer<User> consumer);
+}
@@ -0,0 +1,164 @@
+package ru.evotor.userservice.repository;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.evotor.userservice.entity.UserEntity;
+import ru.evotor.userservice.model.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TemporalType;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public class UserRepoCustomImpl implements UserRepoCustom {
+
+    private static final String FULL_NAME = "lower(last_name || ' ' || first_name || ' ' || patronymic)";
+
+    private static final String PREFIX_MATCH = "(" + FULL_NAME + " like :prefix or " + FULL_NAME + " like :wordPrefix)";
+
+    static final String SEARCH_BY_NAME_SQL = "select " + UserRowMapper.USER_COLUMNS + " from users" +
+            " where " + PREFIX_MATCH + " or :query <% " + FULL_NAME +
+            " order by " + PREFIX_MATCH + " desc, word_similarity(:query, " + FULL_NAME + ") desc, id" +
+            " limit :limit";
+
+    private static final String SELECT_USERS = "select " + UserRowMapper.USER_COLUMNS + " from users";
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+    private final UserHibernateCache userHibernateCache;
+
+    private final EntityManager entityManager;
+
+    @Autowired
+    public UserRepoCustomImpl(NamedParameterJdbcTemplate jdbcTemplate, UserHibernateCache userHibernateCache,
+                              EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userHibernateCache = userHibernateCache;
+        this.entityManager = entityManager;
+
+        JdbcTemplate streamingTemplate = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        streamingTemplate.setFetchSize(STREAM_FETCH_SIZE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streamingTemplate);
+    }
+
+    /**
+     * Runs the update as a Hibernate native query synchronized with {@link UserEntity}, so Hibernate invalidates
+     * the cached queries on {@code users} before and after it, and soft-locks the updated user in the entity
+     * cache until the transaction completes.
+     */
+    @Override
+    public Optional<User> updateNonNullFields(User user) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("id", user.getId());
+        StringBuilder assignments = new StringBuilder();
+
+        appendAssignment(assignments, parameters, "first_name", "firstName", user.getFirstName());
+        appendAssignment(assignments, parameters, "last_name", "lastName", user.getLastName());
+        appendAssignment(assignments, parameters, "patronymic", "patronymic", user.getPatronymic());
+        appendAssignment(assignments, parameters, "date_of_birth", "dateOfBirth", user.getDateOfBirth());
+
+        String condition = " where id = :id";
+        if (user.getVersion() != null) {
+            condition += " and version = :version";
+            parameters.put("version", user.getVersion());
+        }
+
+        if (assignments.length() == 0) {
+            return jdbcTemplate.query(SELECT_USERS + condition, parameters, UserRowMapper.INSTANCE).stream().findFirst();
+        }
+
+        NativeQuery<?> update = entityManager
+                .createNativeQuery("update users set " + assignments + "version = version + 1" + condition)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(UserEntity.class);
+        parameters.forEach((name, value) -> {
+            if (value instanceof Date) {
+                update.setParameter(name, (Date) value, TemporalType.DATE);
+            } else {
+                update.setParameter(name, value);
+            }
+        });
+        if (update.executeUpdate() == 0) {
+            return Optional.empty();
+        }
+
+        userHibernateCache.lockUntilCompletion(entityManager, user.getId());
+        return entityManager.createQuery(UserRepo.SELECT_USER_MODEL + "where u.id = :id", User.class)
+                .setParameter("id", user.getId())
+                .getResultStream()
+                .findFirst();
+    }
+
+    @Override
+    public List<User> searchByName(String query, int limit) {
+        String escapedQuery = escapeLike(query);
+
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("query", query)
+                .addValue("prefix", escapedQuery + "%")
+                .addValue("wordPrefix", "% " + escapedQuery + "%")
+                .addValue("limit", limit);
+
+        return jdbcTemplate.query(SEARCH_BY_NAME_SQL, parameters, UserRowMapper.INSTANCE);
+    }
+
+    @Override
+    public void streamByNameParts(String firstName, String lastName, String patronymic, Consumer<User> consumer) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        List<String> predicates = new ArrayList<>(3);
+        appendPredicate(predicates, parameters, "first_name", "firstName", firstName);
+        appendPredicate(predicates, parameters, "last_name", "lastName", lastName);
+        appendPredicate(predicates, parameters, "patronymic", "patronymic", patronymic);
+
+        streamingJdbcTemplate.query(SELECT_USERS + " where " + String.join(" and ", predicates), parameters,
+                streamTo(consumer));
+    }
+
+    @Override
+    public void streamByDateOfBirthBetween(Date dateFrom, Date dateTo, Consumer<User> consumer) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("dateFrom", dateFrom, Types.DATE)
+                .addValue("dateTo", dateTo, Types.DATE);
+
+        streamingJdbcTemplate.query(SELECT_USERS + " where date_of_birth between :dateFrom and :dateTo", parameters,
+                streamTo(consumer));
+    }
+
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static RowCallbackHandler streamTo(Consumer<User> consumer) {
+        return resultSet -> consumer.accept(UserRowMapper.INSTANCE.mapRow(resultSet, resultSet.getRow()));
+    }
+
+    private static void appendPredicate(List<String> predicates, MapSqlParameterSource parameters,
+                                        String column, String parameter, String value) {
+        if (value != null) {
+            predicates.add(column + " = :" + parameter);
+            parameters.addValue(parameter, value, Types.VARCHAR);
+        }
+    }
+
+    private static void appendAssignment(StringBuilder assignments, Map<String, Object> parameters,
+                                         String column, String parameter, Object value) {
+        if (value != null) {
+            assignments.append(column).append(" = :").append(parameter).append(", ");
+            parameters.put(parameter, value);
+        }
+    }
+}
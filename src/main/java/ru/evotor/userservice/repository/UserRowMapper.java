@@ -0,0 +1,24 @@
+package ru.evotor.userservice.repository;
+
+import org.springframework.jdbc.core.RowMapper;
+import ru.evotor.userservice.model.User;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class UserRowMapper implements RowMapper<User> {
+    public static final String USER_COLUMNS = "id, first_name, last_name, patronymic, date_of_birth, version";
+
+    public static final UserRowMapper INSTANCE = new UserRowMapper();
+
+    @Override
+    public User mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new User(
+                rs.getLong("id"),
+                rs.getString("first_name"),
+                rs.getString("last_name"),
+                rs.getString("patronymic"),
+                rs.getDate("date_of_birth"),
+                rs.getLong("version"));
+    }
+}
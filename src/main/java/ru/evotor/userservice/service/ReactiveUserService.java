@@ -0,0 +1,170 @@
+package ru.evotor.userservice.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.evotor.userservice.exception.UserVersionConflictException;
+import ru.evotor.userservice.model.User;
+import ru.evotor.userservice.model.UserBatch;
+import ru.evotor.userservice.repository.ReactiveUserRepo;
+import ru.evotor.userservice.wrapper.DateRange;
+import ru.evotor.userservice.wrapper.FullName;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * {@link UserService} for the reactive runtime mode. Validates with the same {@link UserRequestValidator},
+ * signals errors through the returned publisher and completes empty where {@link UserService} returns an
+ * empty Optional. It uses neither the caches nor the in-memory indexes, see
+ * {@link ru.evotor.userservice.config.ReactiveConfig} for why the modes can not share a database.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserService {
+
+    private final ReactiveUserRepo reactiveUserRepo;
+
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
+    private static final int SELECT_CHUNK_SIZE = 1000;
+
+    @Autowired
+    public ReactiveUserService(ReactiveUserRepo reactiveUserRepo) {
+        this.reactiveUserRepo = reactiveUserRepo;
+    }
+
+    public Mono<List<User>> getAllUsers() {
+        return reactiveUserRepo.findAllByOrderByIdAsc().collectList();
+    }
+
+    public Flux<User> getUsersPage(Long afterId, Integer limit) {
+        return Flux.defer(() -> reactiveUserRepo.findByIdGreaterThanOrderByIdAsc(afterId == null ? 0L : afterId,
+                UserRequestValidator.pageSize(limit)));
+    }
+
+    public Flux<User> streamAllUsers() {
+        return reactiveUserRepo.findAllByOrderByIdAsc();
+    }
+
+    public Mono<User> getUserById(Long id) {
+        return reactiveUserRepo.findById(id);
+    }
+
+    public Mono<UserBatch> getUsersByIds(List<Long> ids) {
+        return Mono.defer(() -> {
+            UserRequestValidator.checkBatchIds(ids);
+            return findUsersByIds(ids);
+        });
+    }
+
+    public Mono<List<User>> getUsersByFullNameParts(FullName fullName) {
+        return streamUsersByFullNameParts(fullName).collectList();
+    }
+
+    public Flux<User> streamUsersByFullNameParts(FullName fullName) {
+        return Flux.defer(() -> {
+            FullName nameParts = UserRequestValidator.nameParts(fullName);
+            return reactiveUserRepo.findByNameParts(nameParts.getFirstName(), nameParts.getLastName(),
+                    nameParts.getPatronymic());
+        });
+    }
+
+    public Flux<User> searchUsersByName(String query, Integer limit) {
+        return Flux.defer(() -> reactiveUserRepo.searchByName(UserRequestValidator.searchQuery(query),
+                UserRequestValidator.searchLimit(limit)));
+    }
+
+    public Mono<List<User>> getUsersByDateOfBirthRange(DateRange dateOfBirthRange) {
+        return streamUsersByDateOfBirthRange(dateOfBirthRange).collectList();
+    }
+
+    public Flux<User> streamUsersByDateOfBirthRange(DateRange dateOfBirthRange) {
+        return Flux.defer(() -> {
+            DateRange range = UserRequestValidator.dateRange(dateOfBirthRange);
+            return reactiveUserRepo.findByDateOfBirthBetween(range.getDateFrom(), range.getDateTo());
+        });
+    }
+
+    public Mono<Long> countUsersByDateOfBirthRange(DateRange dateOfBirthRange) {
+        return Mono.defer(() -> {
+            DateRange range = UserRequestValidator.dateRange(dateOfBirthRange);
+            return reactiveUserRepo.countByDateOfBirthBetween(range.getDateFrom(), range.getDateTo());
+        });
+    }
+
+    public Mono<SortedMap<Integer, Long>> countUsersByYearOfBirth(DateRange dateOfBirthRange) {
+        return Mono.defer(() -> {
+            DateRange range = UserRequestValidator.dateRange(dateOfBirthRange);
+            return reactiveUserRepo.countByYearOfBirth(range.getDateFrom(), range.getDateTo())
+                    .collect(TreeMap::new, (countsByYear, yearCount) -> countsByYear.put(
+                            ((Number) yearCount[0]).intValue(), ((Number) yearCount[1]).longValue()));
+        });
+    }
+
+    public Mono<User> createUser(User user) {
+        return reactiveUserRepo.insert(user);
+    }
+
+    public Mono<List<Long>> createUsers(List<User> users) {
+        return Mono.defer(() -> {
+            UserRequestValidator.checkUsers(users);
+            return reactiveUserRepo.insertAll(users)
+                    .map(User::getId)
+                    .collectList();
+        });
+    }
+
+    public Mono<User> updateUser(User user) {
+        return Mono.defer(() -> {
+            UserRequestValidator.checkId(user);
+            return reactiveUserRepo.updateNonNullFields(user);
+        }).switchIfEmpty(Mono.defer(() -> user.getVersion() == null
+                ? Mono.<User>empty()
+                : reactiveUserRepo.existsById(user.getId())
+                .<User>flatMap(exists -> exists
+                        ? Mono.error(new UserVersionConflictException("User was modified by another request"))
+                        : Mono.empty())));
+    }
+
+    public Mono<Long> deleteUser(Long id) {
+        return reactiveUserRepo.deleteUserById(id)
+                .flatMap(deleted -> deleted == 0 ? Mono.<Long>empty() : Mono.just(id));
+    }
+
+    public Mono<Integer> deleteUsers(List<Long> ids) {
+        return Mono.defer(() -> {
+            UserRequestValidator.checkIds(ids);
+            return Flux.fromIterable(ids)
+                    .buffer(DELETE_CHUNK_SIZE)
+                    .concatMap(reactiveUserRepo::deleteUsersByIdIn)
+                    .reduce(0, Integer::sum);
+        });
+    }
+
+    private Mono<UserBatch> findUsersByIds(List<Long> ids) {
+        List<Long> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        return Flux.fromIterable(uniqueIds)
+                .buffer(SELECT_CHUNK_SIZE)
+                .concatMap(reactiveUserRepo::findByIdIn)
+                .collectMap(User::getId)
+                .map(usersById -> {
+                    List<User> users = new ArrayList<>(usersById.size());
+                    List<Long> missingIds = new ArrayList<>();
+                    for (Long id : uniqueIds) {
+                        User user = usersById.get(id);
+                        if (user != null) {
+                            users.add(user);
+                        } else {
+                            missingIds.add(id);
+                        }
+                    }
+                    return new UserBatch(users, missingIds);
+                });
+    }
+}
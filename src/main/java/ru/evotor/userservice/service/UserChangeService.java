@@ -0,0 +1,268 @@
+package ru.evotor.userservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import ru.evotor.userservice.exception.UserChangesCursorExpiredException;
+import ru.evotor.userservice.model.UserChange;
+import ru.evotor.userservice.model.UserChangeBatch;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the {@code user_changes} log that statement triggers on {@code users} append to in the same transaction
+ * as every insert, update and delete, whichever path made it.
+ * <p>
+ * Changes are ordered by (transaction id, id), and only changes of transactions older than every running
+ * one are returned. A cursor therefore never skips a change that commits later with a smaller id, at the
+ * price of the feed pausing while a long transaction is open anywhere in the database.
+ * <p>
+ * Changes are kept for {@code user-service.changes.retention-days}, except the last one, so a cursor that is
+ * up to date stays valid however long the feed is quiet. A cursor older than every kept change is rejected
+ * with {@link UserChangesCursorExpiredException}: the changes after it may have been deleted.
+ */
+@Service
+public class UserChangeService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserChangeService.class);
+
+    private static final String FINISHED_TRANSACTIONS_CONDITION =
+            "tx_id < txid_snapshot_xmin(txid_current_snapshot())";
+
+    private static final String SELECT_CHANGES_SQL = "select id, tx_id, user_id, operation, version, changed_at" +
+            " from user_changes where (tx_id, id) > (?, ?) and " + FINISHED_TRANSACTIONS_CONDITION +
+            " order by tx_id, id limit ?";
+
+    private static final String SELECT_LAST_POSITION_SQL = "select tx_id, id from user_changes where " +
+            FINISHED_TRANSACTIONS_CONDITION + " order by tx_id desc, id desc limit 1";
+
+    private static final String SELECT_FIRST_POSITION_SQL =
+            "select tx_id, id from user_changes order by tx_id, id limit 1";
+
+    private static final String DELETE_EXPIRED_CHANGES_SQL = "delete from user_changes where changed_at < ?" +
+            " and id < (select max(id) from user_changes)";
+
+    private static final int DEFAULT_LIMIT = 100;
+
+    private static final int MAX_LIMIT = 1000;
+
+    private static final int MAX_WAIT_SECONDS = 60;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Duration retention;
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-changes");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public UserChangeService(JdbcTemplate jdbcTemplate,
+                             @Value("${user-service.changes.poll-interval-ms}") long pollIntervalMillis,
+                             @Value("${user-service.changes.retention-days}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = Duration.ofDays(retentionDays);
+
+        scheduler.scheduleWithFixedDelay(this::completeWaiters, pollIntervalMillis, pollIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::deleteExpiredChanges, 1, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Returns up to {@code limit} changes after the cursor. When there are none yet and {@code waitSeconds}
+     * is positive, completes as soon as one appears or with an empty batch once the wait is over.
+     *
+     * @throws UserChangesCursorExpiredException if the changes after the cursor may have been deleted already
+     */
+    public CompletableFuture<UserChangeBatch> awaitChanges(String after, Integer limit, Integer waitSeconds) {
+        Position position = Position.parse(after);
+        int changesLimit = checkLimit(limit);
+        int wait = waitSeconds == null ? 0 : waitSeconds;
+        if (wait < 0 || wait > MAX_WAIT_SECONDS) {
+            throw new IllegalArgumentException("Wait must be between 0 and " + MAX_WAIT_SECONDS + " seconds");
+        }
+        checkNotExpired(position);
+
+        UserChangeBatch changes = findChanges(position, changesLimit);
+        if (!changes.getChanges().isEmpty() || wait == 0) {
+            return CompletableFuture.completedFuture(changes);
+        }
+
+        Waiter waiter = new Waiter(position, changesLimit, System.nanoTime() + TimeUnit.SECONDS.toNanos(wait));
+        waiters.add(waiter);
+        return waiter.result;
+    }
+
+    /**
+     * Returns the cursor of the last change visible to the current transaction. Taken in the repeatable read
+     * transaction that reads a snapshot of the users, it is the cursor to follow the feed from afterwards:
+     * every change the snapshot misses comes after it.
+     */
+    public String currentCursor() {
+        Position last = findLastPosition();
+        return (last == null ? Position.START : last).toString();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Checks the last visible change once for all waiting requests, and reads changes only for the
+     * requests that are behind it.
+     */
+    private void completeWaiters() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+
+        try {
+            Position last = findLastPosition();
+            long now = System.nanoTime();
+            for (Iterator<Waiter> iterator = waiters.iterator(); iterator.hasNext(); ) {
+                Waiter waiter = iterator.next();
+                if (waiter.result.isDone()) {
+                    iterator.remove();
+                } else if (last != null && last.compareTo(waiter.after) > 0) {
+                    iterator.remove();
+                    waiter.result.complete(findChanges(waiter.after, waiter.limit));
+                } else if (now - waiter.deadline >= 0) {
+                    iterator.remove();
+                    waiter.result.complete(new UserChangeBatch(List.of(), waiter.after.toString()));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to check user changes for waiting requests", e);
+        }
+    }
+
+    private void deleteExpiredChanges() {
+        try {
+            int deleted = jdbcTemplate.update(DELETE_EXPIRED_CHANGES_SQL, Timestamp.from(Instant.now().minus(retention)));
+            log.info("Deleted {} user changes older than {}", deleted, retention);
+        } catch (RuntimeException e) {
+            log.warn("Failed to delete expired user changes", e);
+        }
+    }
+
+    /**
+     * The cursor of any change read before is either kept or older than every kept change, as changes are
+     * deleted oldest first. Reading from the start of the feed is always allowed.
+     */
+    private void checkNotExpired(Position position) {
+        if (position.compareTo(Position.START) == 0) {
+            return;
+        }
+
+        Position first = jdbcTemplate.query(SELECT_FIRST_POSITION_SQL, resultSet -> resultSet.next()
+                ? new Position(resultSet.getLong("tx_id"), resultSet.getLong("id"))
+                : null);
+        if (first != null && position.compareTo(first) < 0) {
+            throw new UserChangesCursorExpiredException("Changes after cursor " + position + " are no longer kept");
+        }
+    }
+
+    private Position findLastPosition() {
+        return jdbcTemplate.query(SELECT_LAST_POSITION_SQL, resultSet -> resultSet.next()
+                ? new Position(resultSet.getLong("tx_id"), resultSet.getLong("id"))
+                : null);
+    }
+
+    private UserChangeBatch findChanges(Position after, int limit) {
+        Position[] last = {after};
+        List<UserChange> changes = jdbcTemplate.query(SELECT_CHANGES_SQL, (resultSet, rowNum) -> {
+            last[0] = new Position(resultSet.getLong("tx_id"), resultSet.getLong("id"));
+            return new UserChange(
+                    resultSet.getLong("id"),
+                    resultSet.getLong("user_id"),
+                    resultSet.getString("operation"),
+                    resultSet.getObject("version", Long.class),
+                    resultSet.getTimestamp("changed_at"));
+        }, after.txId, after.id, limit);
+
+        return new UserChangeBatch(changes, last[0].toString());
+    }
+
+    private static int checkLimit(Integer limit) {
+        int changesLimit = limit == null ? DEFAULT_LIMIT : limit;
+        if (changesLimit < 1 || changesLimit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        return changesLimit;
+    }
+
+    private static class Waiter {
+        private final Position after;
+        private final int limit;
+        private final long deadline;
+        private final CompletableFuture<UserChangeBatch> result = new CompletableFuture<>();
+
+        Waiter(Position after, int limit, long deadline) {
+            this.after = after;
+            this.limit = limit;
+            this.deadline = deadline;
+        }
+    }
+
+    private static class Position implements Comparable<Position> {
+        private static final Position START = new Position(0, 0);
+
+        private final long txId;
+        private final long id;
+
+        Position(long txId, long id) {
+            this.txId = txId;
+            this.id = id;
+        }
+
+        /**
+         * Parses a cursor of the form {@code <transaction id>-<change id>}; no cursor means the oldest kept change.
+         */
+        static Position parse(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return START;
+            }
+
+            int separator = cursor.indexOf('-');
+            try {
+                if (separator > 0) {
+                    return new Position(Long.parseLong(cursor.substring(0, separator)),
+                            Long.parseLong(cursor.substring(separator + 1)));
+                }
+            } catch (NumberFormatException ignored) {
+                // Reported below together with a missing separator.
+            }
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+
+        @Override
+        public int compareTo(Position other) {
+            int byTransaction = Long.compare(txId, other.txId);
+            return byTransaction != 0 ? byTransaction : Long.compare(id, other.id);
+        }
+
+        @Override
+        public String toString() {
+            return txId + "-" + id;
+        }
+    }
+}
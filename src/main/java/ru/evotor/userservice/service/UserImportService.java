@@ -0,0 +1,320 @@
+package ru.evotor.userservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import ru.evotor.userservice.entity.UserEntity;
+import ru.evotor.userservice.index.UserIndex;
+import ru.evotor.userservice.model.ImportProgress;
+import ru.evotor.userservice.model.ImportReport;
+import ru.evotor.userservice.model.User;
+import ru.evotor.userservice.repository.UserHibernateCache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Service
+public class UserImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+
+    private static final String INSERT_USER_SQL =
+            "insert into users(id, first_name, last_name, patronymic, date_of_birth) values (?, ?, ?, ?, ?)";
+
+    private static final int[] INSERT_USER_ARG_TYPES =
+            {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.DATE};
+
+    private static final String NEXT_IDS_SQL =
+            "select nextval('" + UserEntity.ID_SEQUENCE_NAME + "') from generate_series(1, ?)";
+
+    private static final String[] COLUMN_NAMES = {"first_name", "last_name", "patronymic", "date_of_birth"};
+
+    private static final String HEADER = String.join(",", COLUMN_NAMES);
+
+    private static final int COLUMNS = COLUMN_NAMES.length;
+
+    private static final int MAX_COLUMN_LENGTH = 255;
+
+    /**
+     * Longest valid record: every name column quoted with all of its characters being doubled quotes.
+     */
+    private static final int MAX_RECORD_LENGTH = COLUMNS * (2 * MAX_COLUMN_LENGTH + 3);
+
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int batchSize;
+
+    private final List<UserIndex> userIndexes;
+
+    private final UserHibernateCache userHibernateCache;
+
+    private final UserSearchesCache userSearchesCache;
+
+    @Autowired
+    public UserImportService(JdbcTemplate jdbcTemplate, @Value("${user-service.import.batch-size}") int batchSize,
+                             List<UserIndex> userIndexes, UserHibernateCache userHibernateCache,
+                             UserSearchesCache userSearchesCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.userIndexes = userIndexes;
+        this.userHibernateCache = userHibernateCache;
+        this.userSearchesCache = userSearchesCache;
+    }
+
+    public ImportReport importUsers(InputStream csv) throws IOException {
+        return importUsers(csv, progress -> {
+        });
+    }
+
+    /**
+     * Imports the rows and passes the totals to {@code progress} after every written batch. A batch the
+     * database refuses stops the import: the report then holds the error and the rows of the batches written
+     * before it, which stay committed.
+     */
+    public ImportReport importUsers(InputStream csv, Consumer<ImportProgress> progress) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        ImportReport report = new ImportReport();
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        IdBlock ids = new IdBlock();
+
+        RecordReader reader = new RecordReader(
+                new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8), READ_BUFFER_SIZE));
+        String record;
+        while ((record = reader.next()) != null) {
+            long lineNumber = reader.recordLineNumber;
+            if (record.isBlank() || (lineNumber == 1 && HEADER.equalsIgnoreCase(record.strip()))) {
+                continue;
+            }
+
+            try {
+                batch.add(parseRow(record));
+            } catch (IllegalArgumentException e) {
+                report.reject(lineNumber, e.getMessage());
+                continue;
+            }
+
+            if (batch.size() == batchSize && !insertBatch(batch, ids, report, startedAt, progress)) {
+                break;
+            }
+        }
+
+        if (!batch.isEmpty() && report.getError() == null) {
+            insertBatch(batch, ids, report, startedAt, progress);
+        }
+
+        report.setElapsedMillis(System.currentTimeMillis() - startedAt);
+        log.info("Users import {}: {} rows imported, {} rows rejected in {} ms",
+                report.getError() == null ? "finished" : "failed", report.getImportedRows(),
+                report.getRejectedRows(), report.getElapsedMillis());
+
+        return report;
+    }
+
+    /**
+     * Writes the batch in one implicit transaction of the driver and returns whether it was written.
+     */
+    private boolean insertBatch(List<Object[]> batch, IdBlock ids, ImportReport report, long startedAt,
+                                Consumer<ImportProgress> progress) {
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        try {
+            long[] rowIds = nextIds(ids, batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                Object[] row = batch.get(i);
+                rows.add(new Object[]{rowIds[i], row[0], row[1], row[2], row[3]});
+            }
+
+            userHibernateCache.write(() -> jdbcTemplate.batchUpdate(INSERT_USER_SQL, rows, INSERT_USER_ARG_TYPES));
+        } catch (DataAccessException e) {
+            log.warn("Users import batch {} failed", report.getBatches() + 1, e);
+            report.fail(e instanceof DataIntegrityViolationException
+                    ? "Batch " + (report.getBatches() + 1) + " violates table constraints"
+                    : "Batch " + (report.getBatches() + 1) + " could not be written to the database");
+            batch.clear();
+            return false;
+        }
+        userSearchesCache.evict();
+        for (Object[] row : rows) {
+            User user = new User((Long) row[0], (String) row[1], (String) row[2], (String) row[3], (Date) row[4], 0L);
+            for (UserIndex userIndex : userIndexes) {
+                userIndex.put(user);
+            }
+        }
+        report.addBatch(batch.size());
+        batch.clear();
+
+        ImportProgress batchProgress = new ImportProgress(report.getBatches(), report.getImportedRows(),
+                report.getRejectedRows(), System.currentTimeMillis() - startedAt);
+        log.info("Users import batch {} written: {} rows imported, {} rows rejected, {} ms elapsed",
+                batchProgress.getBatches(), batchProgress.getImportedRows(), batchProgress.getRejectedRows(),
+                batchProgress.getElapsedMillis());
+        progress.accept(batchProgress);
+        return true;
+    }
+
+    /**
+     * Takes ids from the users sequence the same way Hibernate's pooled optimizer does, so imported rows
+     * never collide with ids handed out by {@link UserService}: every nextval reserves a block of
+     * {@link UserEntity#ID_ALLOCATION_SIZE} ids ending at the returned value. The blocks a batch needs are
+     * reserved with one query.
+     */
+    private long[] nextIds(IdBlock ids, int count) {
+        long[] result = new long[count];
+        int filled = 0;
+        while (true) {
+            while (filled < count && ids.next <= ids.last) {
+                result[filled++] = ids.next++;
+            }
+            if (filled == count) {
+                return result;
+            }
+
+            int blocks = (count - filled + UserEntity.ID_ALLOCATION_SIZE - 1) / UserEntity.ID_ALLOCATION_SIZE;
+            for (long hi : jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class, blocks)) {
+                long lo = Math.max(hi - UserEntity.ID_ALLOCATION_SIZE + 1, 1);
+                for (long id = lo; id <= hi && filled < count; id++) {
+                    result[filled++] = id;
+                }
+                ids.next = Math.max(lo, result[filled - 1] + 1);
+                ids.last = hi;
+            }
+        }
+    }
+
+    static Object[] parseRow(String line) {
+        String[] columns = splitColumns(line);
+
+        for (int i = 0; i < COLUMNS - 1; i++) {
+            if (columns[i].isBlank()) {
+                throw new IllegalArgumentException(COLUMN_NAMES[i] + " can not be empty or blank");
+            }
+            if (columns[i].length() > MAX_COLUMN_LENGTH) {
+                throw new IllegalArgumentException(COLUMN_NAMES[i] + " can not be longer than " + MAX_COLUMN_LENGTH);
+            }
+        }
+
+        Date dateOfBirth;
+        try {
+            dateOfBirth = Date.valueOf(LocalDate.parse(columns[COLUMNS - 1].strip()));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(COLUMN_NAMES[COLUMNS - 1] + " must be in yyyy-MM-dd format");
+        }
+
+        return new Object[]{columns[0], columns[1], columns[2], dateOfBirth};
+    }
+
+    private static String[] splitColumns(String line) {
+        String[] columns = new String[COLUMNS];
+        StringBuilder column = new StringBuilder();
+        int columnIndex = 0;
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    column.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    column.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                if (columnIndex == COLUMNS - 1) {
+                    throw new IllegalArgumentException("Row must have " + COLUMNS + " columns");
+                }
+                columns[columnIndex++] = column.toString();
+                column.setLength(0);
+            } else {
+                column.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted column");
+        }
+        if (columnIndex != COLUMNS - 1) {
+            throw new IllegalArgumentException("Row must have " + COLUMNS + " columns");
+        }
+        columns[columnIndex] = column.toString();
+
+        return columns;
+    }
+
+    /**
+     * Reads RFC 4180 records, which continue on the next line while a quoted column is open. A record whose
+     * quote is still open after {@link #MAX_RECORD_LENGTH} characters is returned as is and gets rejected, so
+     * a stray quote costs one row and not the rest of the file.
+     */
+    private static final class RecordReader {
+
+        private final BufferedReader reader;
+
+        private long lineNumber;
+
+        private long recordLineNumber;
+
+        RecordReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        String next() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            recordLineNumber = ++lineNumber;
+
+            boolean quoted = isQuoteOpen(line, false);
+            if (!quoted) {
+                return line;
+            }
+
+            StringBuilder record = new StringBuilder(line);
+            while (quoted && record.length() <= MAX_RECORD_LENGTH && (line = reader.readLine()) != null) {
+                lineNumber++;
+                record.append('\n').append(line);
+                quoted = isQuoteOpen(line, true);
+            }
+            return record.toString();
+        }
+
+        /**
+         * An escaped quote is two quote characters, so every odd quote opens or closes a quoted column.
+         */
+        private static boolean isQuoteOpen(String line, boolean quoted) {
+            for (int i = 0; i < line.length(); i++) {
+                if (line.charAt(i) == '"') {
+                    quoted = !quoted;
+                }
+            }
+            return quoted;
+        }
+    }
+
+    private static final class IdBlock {
+
+        private long next = 1;
+
+        private long last = 0;
+    }
+}
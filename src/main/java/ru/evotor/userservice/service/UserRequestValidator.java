@@ -0,0 +1,116 @@
+package ru.evotor.userservice.service;
+
+import ru.evotor.userservice.model.User;
+import ru.evotor.userservice.wrapper.DateRange;
+import ru.evotor.userservice.wrapper.FullName;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Request validation shared by {@link UserService} and {@link ReactiveUserService}, so both runtime modes
+ * accept the same requests. Every check throws {@link IllegalArgumentException}, which the reactive service
+ * signals through the returned publisher.
+ */
+final class UserRequestValidator {
+
+    static final String BLANK_ARGUMENTS_EXCEPTION_MESSAGE = "Arguments can not be empty or blank";
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    static final int MAX_PAGE_SIZE = 1000;
+
+    static final int MAX_BATCH_IDS = 10000;
+
+    static final int DEFAULT_SEARCH_LIMIT = 20;
+
+    static final int MAX_SEARCH_LIMIT = 100;
+
+    private UserRequestValidator() {
+    }
+
+    static int pageSize(Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return pageSize;
+    }
+
+    static int searchLimit(Integer limit) {
+        int searchLimit = limit == null ? DEFAULT_SEARCH_LIMIT : limit;
+        if (searchLimit < 1 || searchLimit > MAX_SEARCH_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_SEARCH_LIMIT);
+        }
+        return searchLimit;
+    }
+
+    /**
+     * Returns the query with its whitespace collapsed and lower-cased, as the name search expects it.
+     */
+    static String searchQuery(String query) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException(BLANK_ARGUMENTS_EXCEPTION_MESSAGE);
+        }
+        return query.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    static void checkBatchIds(List<Long> ids) {
+        checkIds(ids);
+        if (ids.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("No more than " + MAX_BATCH_IDS + " ids are allowed");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Ids can not be null");
+        }
+    }
+
+    static void checkIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("Ids list can not be empty");
+        }
+    }
+
+    static void checkUsers(List<User> users) {
+        if (users == null || users.isEmpty()) {
+            throw new IllegalArgumentException("Users list can not be empty");
+        }
+    }
+
+    static void checkId(User user) {
+        if (user.getId() == null) {
+            throw new IllegalArgumentException("Id can not be null");
+        }
+    }
+
+    /**
+     * Returns the name parts a search uses: a last name and a patronymic without a first name are looked up
+     * by the last name only.
+     */
+    static FullName nameParts(FullName fullName) {
+        String firstName = fullName.getFirstName();
+        String lastName = fullName.getLastName();
+        String patronymic = firstName == null && lastName != null ? null : fullName.getPatronymic();
+
+        if (firstName == null && lastName == null && patronymic == null) {
+            throw new IllegalArgumentException("Can not find user with such parameters");
+        }
+        if ((firstName != null && firstName.isBlank()) || (lastName != null && lastName.isBlank())
+                || (patronymic != null && patronymic.isBlank())) {
+            throw new IllegalArgumentException(BLANK_ARGUMENTS_EXCEPTION_MESSAGE);
+        }
+        return new FullName(firstName, lastName, patronymic);
+    }
+
+    /**
+     * Returns the range with a missing bound set to the other one.
+     */
+    static DateRange dateRange(DateRange dateRange) {
+        DateRange range = dateRange.withBothBounds();
+        if (range.getDateFrom() == null) {
+            throw new IllegalArgumentException("Arguments can not be null");
+        }
+        return range;
+    }
+}
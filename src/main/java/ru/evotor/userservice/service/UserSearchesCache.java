@@ -0,0 +1,61 @@
+package ru.evotor.userservice.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.evotor.userservice.config.CacheConfig;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keys and eviction of {@link CacheConfig#USER_SEARCHES_CACHE}. Every key holds the generation of the cache, which
+ * an eviction moves on: a search that read the users before a write and returns after its eviction puts its result
+ * under an old key, which no later search looks up.
+ */
+@Component
+public class UserSearchesCache {
+
+    private final Cache searchesCache;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public UserSearchesCache(CacheManager cacheManager) {
+        this.searchesCache = cacheManager.getCache(CacheConfig.USER_SEARCHES_CACHE);
+    }
+
+    /**
+     * Returns the cache key of a search. Used as the key expression of {@code @Cacheable}, which is evaluated
+     * before the search runs.
+     */
+    public Object key(Object query) {
+        return List.of(generation.get(), query);
+    }
+
+    /**
+     * Drops all cached search results, as any write may add a user to or remove it from any of them. Inside a
+     * transaction this is done after commit, so that a search started after the eviction reads the new rows.
+     */
+    public void evict() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictNow();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictNow();
+            }
+        });
+    }
+
+    private void evictNow() {
+        generation.incrementAndGet();
+        searchesCache.clear();
+    }
+}
@@ -1,122 +1,332 @@
 package ru.evotor.userservice.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.evotor.userservice.config.CacheConfig;
+import ru.evotor.userservice.config.ReadFromPrimary;
 import ru.evotor.userservice.entity.UserEntity;
-import ru.evotor.userservice.exception.UserNotFoundException;
+import ru.evotor.userservice.exception.UserVersionConflictException;
+import ru.evotor.userservice.index.DateOfBirthIndex;
+import ru.evotor.userservice.index.UserIndex;
+import ru.evotor.userservice.index.UserNameIndex;
 import ru.evotor.userservice.model.User;
+import ru.evotor.userservice.model.UserBatch;
 import ru.evotor.userservice.repository.UserRepo;
 import ru.evotor.userservice.wrapper.DateRange;
 import ru.evotor.userservice.wrapper.FullName;
 
+import javax.persistence.EntityManager;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
 
     private final UserRepo userRepo;
 
-    private static final String BLANK_ARGUMENTS_EXCEPTION_MESSAGE = "Arguments can not be empty or blank";
+    private final EntityManager entityManager;
+
+    private final int batchSize;
+
+    private final UserNameIndex userNameIndex;
+
+    private final DateOfBirthIndex dateOfBirthIndex;
+
+    private final List<UserIndex> userIndexes;
+
+    private final Cache usersCache;
+
+    private final UserSearchesCache userSearchesCache;
+
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
+    private static final int SELECT_CHUNK_SIZE = 1000;
 
     @Autowired
-    public UserService(UserRepo userRepo) {
+    public UserService(UserRepo userRepo, EntityManager entityManager,
+                       @Value("${user-service.batch-size}") int batchSize,
+                       UserNameIndex userNameIndex, DateOfBirthIndex dateOfBirthIndex,
+                       List<UserIndex> userIndexes, CacheManager cacheManager,
+                       UserSearchesCache userSearchesCache) {
         this.userRepo = userRepo;
+        this.entityManager = entityManager;
+        this.batchSize = batchSize;
+        this.userNameIndex = userNameIndex;
+        this.dateOfBirthIndex = dateOfBirthIndex;
+        this.userIndexes = userIndexes;
+        this.usersCache = cacheManager.getCache(CacheConfig.USERS_CACHE);
+        this.userSearchesCache = userSearchesCache;
     }
 
-    public List<User> getAllUsers() throws UserNotFoundException {
+    @Transactional(readOnly = true)
+    public List<User> getAllUsers() {
         List<User> allUsers = new ArrayList<>();
         userRepo.findAll().forEach(userEntity -> allUsers.add(User.toModel(userEntity)));
 
-        if (allUsers.isEmpty()) {
-            throw new UserNotFoundException("No users in database");
-        }
-
         return allUsers;
     }
 
+    @Transactional(readOnly = true)
+    public List<User> getUsersPage(Long afterId, Integer limit) {
+        int pageSize = UserRequestValidator.pageSize(limit);
+
+        return userRepo.findByIdGreaterThanOrderByIdAsc(afterId == null ? 0L : afterId, PageRequest.of(0, pageSize));
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllUsers(Consumer<User> consumer) {
+        try (Stream<UserEntity> userEntities = userRepo.streamAllByOrderByIdAsc()) {
+            userEntities.forEach(userEntity -> {
+                consumer.accept(User.toModel(userEntity));
+                entityManager.detach(userEntity);
+            });
+        }
+    }
+
     public User createUser(User user) {
-        return User.toModel(userRepo.save(User.toEntity(user)));
+        User createdUser = User.toModel(userRepo.save(User.toEntity(user)));
+        usersCache.evict(createdUser.getId());
+        putIntoIndexes(createdUser);
+        userSearchesCache.evict();
+        return createdUser;
     }
 
-    public User getUserById(Long id) throws UserNotFoundException {
-        return User.toModel(userRepo.findById(id).orElseThrow(() -> new UserNotFoundException("No user with such id")));
+    @Transactional
+    public List<Long> createUsers(List<User> users) {
+        UserRequestValidator.checkUsers(users);
+
+        List<Long> ids = new ArrayList<>(users.size());
+        List<User> createdUsers = new ArrayList<>(users.size());
+        for (User user : users) {
+            UserEntity userEntity = User.toEntity(user);
+            entityManager.persist(userEntity);
+            ids.add(userEntity.getId());
+            createdUsers.add(User.toModel(userEntity));
+
+            if (ids.size() % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                createdUsers.forEach(createdUser -> putIntoIndexes(createdUser));
+            }
+        });
+        userSearchesCache.evict();
+
+        return ids;
     }
 
-    public List<User> getUsersByFullNameParts(FullName fullName) throws UserNotFoundException {
-        List<User> users;
+    /**
+     * Loaded with {@code sync}, so an eviction after a write waits for a concurrent load of the same id and
+     * the old row is not put back. Misses are cached for {@code user-service.users.miss-ttl-ms}, and evicted
+     * at once when {@link #createUser} creates the user.
+     */
+    @Cacheable(cacheNames = CacheConfig.USERS_CACHE, key = "#id", sync = true)
+    @ReadFromPrimary
+    @Transactional(readOnly = true)
+    public Optional<User> getUserById(Long id) {
+        return userRepo.findById(id).map(User::toModel);
+    }
 
-        String firstName = fullName.getFirstName();
-        String lastName = fullName.getLastName();
-        String patronymic = fullName.getPatronymic();
+    /**
+     * Returns users with the given ids in the order of the first occurrence of each id, plus the ids that
+     * have no user. Cached users are taken from the users cache, the rest are read with chunked
+     * {@code in} queries and are not put into the cache: such a put is not ordered with the eviction of a
+     * concurrent update or delete, so it could cache a row that was already changed. Only {@link #getUserById}
+     * fills the cache.
+     */
+    public UserBatch getUsersByIds(List<Long> ids) {
+        UserRequestValidator.checkBatchIds(ids);
+
+        LinkedHashSet<Long> uniqueIds = new LinkedHashSet<>(ids);
+        Map<Long, User> usersById = new HashMap<>();
+        long[] uncachedIds = new long[uniqueIds.size()];
+        int uncached = 0;
+        for (Long id : uniqueIds) {
+            User cachedUser = usersCache.get(id, User.class);
+            if (cachedUser != null) {
+                usersById.put(id, cachedUser);
+            } else {
+                uncachedIds[uncached++] = id;
+            }
+        }
 
-        users = getUsersByFullNameParts(firstName, lastName, patronymic);
+        if (uncached > 0) {
+            usersById.putAll(loadUsersByIds(Arrays.copyOf(uncachedIds, uncached)));
+        }
 
-        if (users.isEmpty()) {
-            throw new UserNotFoundException("No users with such parameters");
+        List<User> users = new ArrayList<>(usersById.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            User user = usersById.get(id);
+            if (user != null) {
+                users.add(user);
+            } else {
+                missingIds.add(id);
+            }
         }
+        return new UserBatch(users, missingIds);
+    }
 
-        return users;
+    /**
+     * Results are cached in {@link CacheConfig#USER_SEARCHES_CACHE} until the next write of any user, see
+     * {@link UserSearchesCache}.
+     */
+    @Cacheable(cacheNames = CacheConfig.USER_SEARCHES_CACHE, key = "@userSearchesCache.key(#fullName)")
+    @ReadFromPrimary
+    @Transactional(readOnly = true)
+    public List<User> getUsersByFullNameParts(FullName fullName) {
+        FullName nameParts = UserRequestValidator.nameParts(fullName);
+
+        return getUsersByFullNameParts(nameParts.getFirstName(), nameParts.getLastName(), nameParts.getPatronymic());
     }
 
-    public List<User> getUsersByDateOfBirthRange(DateRange dateOfBirthRange) throws UserNotFoundException {
-        Date dateFrom = dateOfBirthRange.getDateFrom();
-        Date dateTo = dateOfBirthRange.getDateTo();
+    /**
+     * Passes the users {@link #getUsersByFullNameParts} finds to the consumer while they are read from the
+     * database, without the name index, the caches or a list of the whole result.
+     */
+    @Transactional(readOnly = true)
+    public void streamUsersByFullNameParts(FullName fullName, Consumer<User> consumer) {
+        FullName nameParts = UserRequestValidator.nameParts(fullName);
 
-        if (dateFrom == null && dateTo == null) {
-            throw new IllegalArgumentException("Arguments can not be null");
-        }
+        userRepo.streamByNameParts(nameParts.getFirstName(), nameParts.getLastName(), nameParts.getPatronymic(),
+                consumer);
+    }
 
-        List<User> users = new ArrayList<>();
+    @Transactional(readOnly = true)
+    public List<User> searchUsersByName(String query, Integer limit) {
+        String normalizedQuery = UserRequestValidator.searchQuery(query);
+        int resultLimit = UserRequestValidator.searchLimit(limit);
 
-        if (dateFrom != null && dateTo != null && !dateFrom.equals(dateTo)) {
-            userRepo.findByDateOfBirthBetween(dateFrom, dateTo).forEach(userEntity ->
-                    users.add(User.toModel(userEntity)));
-        } else if (dateFrom != null && dateTo == null) {
-            userRepo.findByDateOfBirth(dateFrom).forEach(userEntity -> users.add(User.toModel(userEntity)));
-        } else if (dateFrom == null) {
-            userRepo.findByDateOfBirth(dateTo).forEach(userEntity -> users.add(User.toModel(userEntity)));
-        } else {
-            userRepo.findByDateOfBirth(dateFrom).forEach(userEntity -> users.add(User.toModel(userEntity)));
-        }
+        return userRepo.searchByName(normalizedQuery, resultLimit);
+    }
 
-        if (users.isEmpty()) {
-            throw new UserNotFoundException("No users with such parameters");
+    /**
+     * Rows are always read with a single range query. {@link DateOfBirthIndex} is only used for the counts: its
+     * ids lag behind the table by up to the sync interval, and loading them back would take a query per chunk.
+     */
+    @Cacheable(cacheNames = CacheConfig.USER_SEARCHES_CACHE, key = "@userSearchesCache.key(#dateOfBirthRange.withBothBounds())")
+    @ReadFromPrimary
+    @Transactional(readOnly = true)
+    public List<User> getUsersByDateOfBirthRange(DateRange dateOfBirthRange) {
+        DateRange range = UserRequestValidator.dateRange(dateOfBirthRange);
+
+        if (range.getDateFrom().equals(range.getDateTo())) {
+            return userRepo.findByDateOfBirth(range.getDateFrom());
         }
+        return userRepo.findByDateOfBirthBetween(range.getDateFrom(), range.getDateTo());
+    }
 
-        return users;
+    /**
+     * Streaming counterpart of {@link #getUsersByDateOfBirthRange}, see {@link #streamUsersByFullNameParts}.
+     */
+    @Transactional(readOnly = true)
+    public void streamUsersByDateOfBirthRange(DateRange dateOfBirthRange, Consumer<User> consumer) {
+        DateRange range = UserRequestValidator.dateRange(dateOfBirthRange);
+
+        userRepo.streamByDateOfBirthBetween(range.getDateFrom(), range.getDateTo(), consumer);
     }
 
-    public User updateUser(User user) throws UserNotFoundException {
-        UserEntity userToUpdate = userRepo.findById(user.getId()).orElseThrow(() ->
-                new UserNotFoundException("No user with such id"));
+    @Transactional(readOnly = true)
+    public long countUsersByDateOfBirthRange(DateRange dateOfBirthRange) {
+        DateRange range = UserRequestValidator.dateRange(dateOfBirthRange);
+        Date dateFrom = range.getDateFrom();
+        Date dateTo = range.getDateTo();
 
-        String firstName = user.getFirstName();
-        String lastName = user.getLastName();
-        String patronymic = user.getPatronymic();
-        Date dateOfBirth = user.getDateOfBirth();
+        if (dateOfBirthIndex.isReady()) {
+            return dateOfBirthIndex.count(DateOfBirthIndex.toEpochDay(dateFrom), DateOfBirthIndex.toEpochDay(dateTo));
+        }
+        return userRepo.countByDateOfBirthBetween(dateFrom, dateTo);
+    }
 
-        if (firstName != null) {
-            userToUpdate.setFirstName(firstName);
+    @Transactional(readOnly = true)
+    public SortedMap<Integer, Long> countUsersByYearOfBirth(DateRange dateOfBirthRange) {
+        DateRange range = UserRequestValidator.dateRange(dateOfBirthRange);
+        Date dateFrom = range.getDateFrom();
+        Date dateTo = range.getDateTo();
+
+        if (dateOfBirthIndex.isReady()) {
+            return dateOfBirthIndex.countByYear(DateOfBirthIndex.toEpochDay(dateFrom), DateOfBirthIndex.toEpochDay(dateTo));
         }
-        if (lastName != null) {
-            userToUpdate.setLastName(lastName);
+
+        SortedMap<Integer, Long> countsByYear = new TreeMap<>();
+        for (Object[] yearCount : userRepo.countByYearOfBirth(dateFrom, dateTo)) {
+            countsByYear.put(((Number) yearCount[0]).intValue(), ((Number) yearCount[1]).longValue());
         }
-        if (patronymic != null) {
-            userToUpdate.setPatronymic(patronymic);
+        return countsByYear;
+    }
+
+    /**
+     * Returns the updated user, or an empty result when there is no user with such id.
+     *
+     * @throws UserVersionConflictException if the user exists but its version differs from the given one
+     */
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#user.id")
+    public Optional<User> updateUser(User user) {
+        UserRequestValidator.checkId(user);
+
+        Optional<User> updatedUser = userRepo.updateNonNullFields(user);
+        if (updatedUser.isPresent()) {
+            putIntoIndexes(updatedUser.get());
+            userSearchesCache.evict();
+            return updatedUser;
         }
-        if (dateOfBirth != null) {
-            userToUpdate.setDateOfBirth(dateOfBirth);
+
+        if (user.getVersion() != null && userRepo.existsById(user.getId())) {
+            throw new UserVersionConflictException("User was modified by another request");
         }
-        userRepo.save(userToUpdate);
+        return Optional.empty();
+    }
 
-        return User.toModel(userToUpdate);
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#id")
+    public Optional<Long> deleteUser(Long id) {
+        if (userRepo.deleteUserById(id) == 0) {
+            return Optional.empty();
+        }
+        removeFromIndexes(id);
+        userSearchesCache.evict();
+        return Optional.of(id);
     }
 
-    public Long deleteUser(Long id){
-        userRepo.deleteById(id);
-        return id;
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, allEntries = true)
+    public int deleteUsers(List<Long> ids) {
+        UserRequestValidator.checkIds(ids);
+
+        int deleted = 0;
+        for (int from = 0; from < ids.size(); from += DELETE_CHUNK_SIZE) {
+            deleted += userRepo.deleteUsersByIdIn(ids.subList(from, Math.min(from + DELETE_CHUNK_SIZE, ids.size())));
+        }
+        ids.forEach(this::removeFromIndexes);
+        if (deleted > 0) {
+            userSearchesCache.evict();
+        }
+
+        return deleted;
     }
 
     private List<User> getUsersByFullNameParts(String firstName, String lastName, String patronymic) {
@@ -142,53 +352,83 @@ public class UserService {
     }
 
     private void addUsersByFullNameToList(List<User> usersList, String firstName, String lastName, String patronymic) {
-        if (firstName.isBlank() || lastName.isBlank() || patronymic.isBlank()) {
-            throw new IllegalArgumentException(BLANK_ARGUMENTS_EXCEPTION_MESSAGE);
-        }
-
-        userRepo.findByFirstNameAndLastNameAndPatronymic(firstName, lastName, patronymic).forEach(userEntity ->
-                usersList.add(User.toModel(userEntity)));
+        usersList.addAll(findByNameParts(firstName, lastName, patronymic, () ->
+                userRepo.findByFirstNameAndLastNameAndPatronymic(firstName, lastName, patronymic)));
     }
 
     private void addUsersByFirstNameAndLastNameToList(List<User> usersList, String firstName, String lastName) {
-        if (firstName.isBlank() || lastName.isBlank()) {
-            throw new IllegalArgumentException(BLANK_ARGUMENTS_EXCEPTION_MESSAGE);
-        }
-
-        userRepo.findByFirstNameAndLastName(firstName, lastName).forEach(userEntity ->
-                usersList.add(User.toModel(userEntity)));
+        usersList.addAll(findByNameParts(firstName, lastName, null, () ->
+                userRepo.findByFirstNameAndLastName(firstName, lastName)));
     }
 
     private void addUsersByFirstNameAndPatronymicToList(List<User> usersList, String firstName, String patronymic) {
-        if (firstName.isBlank() || patronymic.isBlank()) {
-            throw new IllegalArgumentException(BLANK_ARGUMENTS_EXCEPTION_MESSAGE);
-        }
-
-        userRepo.findByFirstNameAndPatronymic(firstName, patronymic).forEach(userEntity ->
-                usersList.add(User.toModel(userEntity)));
+        usersList.addAll(findByNameParts(firstName, null, patronymic, () ->
+                userRepo.findByFirstNameAndPatronymic(firstName, patronymic)));
     }
 
     private void addUsersByFirstNameToList(List<User> usersList, String firstName) {
-        if (firstName.isBlank()) {
-            throw new IllegalArgumentException(BLANK_ARGUMENTS_EXCEPTION_MESSAGE);
+        usersList.addAll(findByNameParts(firstName, null, null, () ->
+                userRepo.findByFirstName(firstName)));
+    }
+
+    private void addUsersByLastNameToList(List<User> usersList, String lastName) {
+        usersList.addAll(findByNameParts(null, lastName, null, () ->
+                userRepo.findByLastName(lastName)));
+    }
+
+    private void addUsersByPatronymicToList(List<User> usersList, String patronymic) {
+        usersList.addAll(findByNameParts(null, null, patronymic, () ->
+                userRepo.findByPatronymic(patronymic)));
+    }
+
+    private List<User> findByNameParts(String firstName, String lastName, String patronymic,
+                                       Supplier<List<User>> repositoryQuery) {
+        if (!userNameIndex.isReady()) {
+            return repositoryQuery.get();
         }
 
-        userRepo.findByFirstName(firstName).forEach(userEntity -> usersList.add(User.toModel(userEntity)));
+        long[] candidateIds = userNameIndex.find(firstName, lastName, patronymic);
+        Map<Long, User> candidates = loadUsersByIds(candidateIds);
+
+        List<User> users = new ArrayList<>(candidates.size());
+        for (long id : candidateIds) {
+            User user = candidates.get(id);
+            // The index may be a sync interval ahead of or behind the table, the rows decide.
+            if (user != null && matches(firstName, user.getFirstName()) && matches(lastName, user.getLastName())
+                    && matches(patronymic, user.getPatronymic())) {
+                users.add(user);
+            }
+        }
+
+        return users;
     }
 
-    private void addUsersByLastNameToList(List<User> usersList, String lastName) {
-        if (lastName.isBlank()) {
-            throw new IllegalArgumentException(BLANK_ARGUMENTS_EXCEPTION_MESSAGE);
+    private Map<Long, User> loadUsersByIds(long[] ids) {
+        Map<Long, User> users = new HashMap<>();
+        List<Long> chunk = new ArrayList<>(Math.min(ids.length, SELECT_CHUNK_SIZE));
+        for (int i = 0; i < ids.length; i++) {
+            chunk.add(ids[i]);
+            if (chunk.size() == SELECT_CHUNK_SIZE || i == ids.length - 1) {
+                userRepo.findUsersByIdIn(chunk).forEach(user -> users.put(user.getId(), user));
+                chunk.clear();
+            }
         }
+        return users;
+    }
 
-        userRepo.findByLastName(lastName).forEach(userEntity -> usersList.add(User.toModel(userEntity)));
+    private static boolean matches(String expected, String actual) {
+        return expected == null || Objects.equals(expected, actual);
     }
 
-    private void addUsersByPatronymicToList(List<User> usersList, String patronymic) {
-        if (patronymic.isBlank()) {
-            throw new IllegalArgumentException(BLANK_ARGUMENTS_EXCEPTION_MESSAGE);
+    private void putIntoIndexes(User user) {
+        for (UserIndex userIndex : userIndexes) {
+            userIndex.put(user);
         }
+    }
 
-        userRepo.findByPatronymic(patronymic).forEach(userEntity -> usersList.add(User.toModel(userEntity)));
+    private void removeFromIndexes(Long id) {
+        for (UserIndex userIndex : userIndexes) {
+            userIndex.remove(id);
+        }
     }
 }
@@ -0,0 +1,97 @@
+package ru.evotor.userservice.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import ru.evotor.userservice.index.DateOfBirthIndex;
+import ru.evotor.userservice.repository.UserRepo;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+@Service
+public class UserStatisticsService {
+
+    private final UserRepo userRepo;
+
+    private final DateOfBirthIndex dateOfBirthIndex;
+
+    private static final List<Integer> DEFAULT_AGE_BAND_BOUNDS = List.of(18, 25, 35, 45, 55, 65);
+
+    private static final int DEFAULT_TOP_LAST_NAMES = 10;
+
+    private static final int MAX_TOP_LAST_NAMES = 100;
+
+    private static final int MAX_AGE_BANDS = 20;
+
+    @Autowired
+    public UserStatisticsService(UserRepo userRepo, DateOfBirthIndex dateOfBirthIndex) {
+        this.userRepo = userRepo;
+        this.dateOfBirthIndex = dateOfBirthIndex;
+    }
+
+    public SortedMap<Integer, Long> countUsersByYearOfBirth() {
+        if (dateOfBirthIndex.isReady()) {
+            return dateOfBirthIndex.countByYear(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        SortedMap<Integer, Long> countsByYear = new TreeMap<>();
+        for (Object[] yearCount : userRepo.countAllByYearOfBirth()) {
+            countsByYear.put(((Number) yearCount[0]).intValue(), ((Number) yearCount[1]).longValue());
+        }
+        return countsByYear;
+    }
+
+    /**
+     * Counts users per age band as of today. Bands are split at the given ages, so bounds 18, 65
+     * give "0-17", "18-64" and "65+".
+     */
+    public Map<String, Long> countUsersByAgeBand(List<Integer> bounds) {
+        List<Integer> ageBounds = bounds == null || bounds.isEmpty() ? DEFAULT_AGE_BAND_BOUNDS : bounds;
+        if (ageBounds.size() > MAX_AGE_BANDS) {
+            throw new IllegalArgumentException("No more than " + MAX_AGE_BANDS + " age bounds are allowed");
+        }
+        for (int i = 0; i < ageBounds.size(); i++) {
+            if (ageBounds.get(i) == null || ageBounds.get(i) <= 0 || (i > 0 && ageBounds.get(i) <= ageBounds.get(i - 1))) {
+                throw new IllegalArgumentException("Age bounds must be positive and ascending");
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        Map<String, Long> countsByAgeBand = new LinkedHashMap<>();
+        int minAge = 0;
+        for (int maxAge : ageBounds) {
+            countsByAgeBand.put(minAge + "-" + (maxAge - 1),
+                    countUsersBornBetween(today.minusYears(maxAge).plusDays(1), today.minusYears(minAge)));
+            minAge = maxAge;
+        }
+        countsByAgeBand.put(minAge + "+", countUsersBornBetween(LocalDate.of(1, 1, 1), today.minusYears(minAge)));
+
+        return countsByAgeBand;
+    }
+
+    public Map<String, Long> countTopLastNames(Integer limit) {
+        int resultLimit = limit == null ? DEFAULT_TOP_LAST_NAMES : limit;
+        if (resultLimit < 1 || resultLimit > MAX_TOP_LAST_NAMES) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_TOP_LAST_NAMES);
+        }
+
+        Map<String, Long> countsByLastName = new LinkedHashMap<>();
+        for (Object[] lastNameCount : userRepo.countByLastName(PageRequest.of(0, resultLimit))) {
+            countsByLastName.put((String) lastNameCount[0], ((Number) lastNameCount[1]).longValue());
+        }
+        return countsByLastName;
+    }
+
+    private long countUsersBornBetween(LocalDate dateFrom, LocalDate dateTo) {
+        if (dateOfBirthIndex.isReady()) {
+            return dateOfBirthIndex.count(DateOfBirthIndex.toEpochDay(dateFrom), DateOfBirthIndex.toEpochDay(dateTo));
+        }
+        return userRepo.countByDateOfBirthBetween(Date.valueOf(dateFrom), Date.valueOf(dateTo));
+    }
+}
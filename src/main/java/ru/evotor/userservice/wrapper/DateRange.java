@@ -1,12 +1,32 @@
 package ru.evotor.userservice.wrapper;
 
+import org.springframework.format.annotation.DateTimeFormat;
+
 import java.util.Date;
 import java.util.Objects;
 
 public class DateRange {
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
     private Date dateFrom;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
     private Date dateTo;
 
+    public DateRange() {
+    }
+
+    public DateRange(Date dateFrom, Date dateTo) {
+        this.dateFrom = dateFrom;
+        this.dateTo = dateTo;
+    }
+
+    /**
+     * Returns the same range with a missing bound taken from the other one, as searches treat a single
+     * date as a one-day range.
+     */
+    public DateRange withBothBounds() {
+        return new DateRange(dateFrom != null ? dateFrom : dateTo, dateTo != null ? dateTo : dateFrom);
+    }
+
     public Date getDateFrom() {
         return dateFrom;
     }
@@ -0,0 +1 @@
+alter sequence users_id_seq increment by 1
\ No newline at end of file
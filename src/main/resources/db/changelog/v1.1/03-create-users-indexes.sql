@@ -0,0 +1,10 @@
+-- findByFirstName, findByFirstNameAndLastName, findByFirstNameAndLastNameAndPatronymic
+create index users_first_name_last_name_patronymic_idx on users (first_name, last_name, patronymic);
+-- findByFirstNameAndPatronymic
+create index users_first_name_patronymic_idx on users (first_name, patronymic);
+-- findByLastName
+create index users_last_name_first_name_idx on users (last_name, first_name);
+-- findByPatronymic
+create index users_patronymic_idx on users (patronymic);
+-- findByDateOfBirth, findByDateOfBirthBetween
+create index users_date_of_birth_idx on users (date_of_birth)
@@ -0,0 +1,5 @@
+drop index users_first_name_last_name_patronymic_idx;
+drop index users_first_name_patronymic_idx;
+drop index users_last_name_first_name_idx;
+drop index users_patronymic_idx;
+drop index users_date_of_birth_idx
@@ -0,0 +1,3 @@
+create extension if not exists pg_trgm;
+create index users_full_name_trgm_idx on users
+    using gin ((lower(last_name || ' ' || first_name || ' ' || patronymic)) gin_trgm_ops)
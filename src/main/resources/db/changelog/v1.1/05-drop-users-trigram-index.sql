@@ -0,0 +1 @@
+drop index users_full_name_trgm_idx
\ No newline at end of file
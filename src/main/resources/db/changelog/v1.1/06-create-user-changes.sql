@@ -0,0 +1,46 @@
+create table user_changes
+(
+    id         bigserial primary key,
+    tx_id      bigint      not null default txid_current(),
+    user_id    bigint      not null,
+    operation  varchar(6)  not null,
+    version    bigint,
+    changed_at timestamp   not null default now()
+);
+
+create index user_changes_tx_id_id_idx on user_changes (tx_id, id);
+
+create index user_changes_changed_at_idx on user_changes (changed_at);
+
+create function record_user_changes() returns trigger as
+$$
+begin
+    if tg_op = 'DELETE' then
+        insert into user_changes(user_id, operation, version) select id, tg_op, version from old_users;
+    else
+        insert into user_changes(user_id, operation, version) select id, tg_op, version from new_users;
+    end if;
+    return null;
+end;
+$$ language plpgsql;
+
+create trigger users_insert_changes_trigger
+    after insert
+    on users
+    referencing new table as new_users
+    for each statement
+execute procedure record_user_changes();
+
+create trigger users_update_changes_trigger
+    after update
+    on users
+    referencing new table as new_users
+    for each statement
+execute procedure record_user_changes();
+
+create trigger users_delete_changes_trigger
+    after delete
+    on users
+    referencing old table as old_users
+    for each statement
+execute procedure record_user_changes();
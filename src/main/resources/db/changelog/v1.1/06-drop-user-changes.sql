@@ -0,0 +1,5 @@
+drop trigger users_delete_changes_trigger on users;
+drop trigger users_update_changes_trigger on users;
+drop trigger users_insert_changes_trigger on users;
+drop function record_user_changes();
+drop table user_changes
\ No newline at end of file
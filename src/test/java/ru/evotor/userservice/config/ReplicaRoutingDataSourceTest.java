@@ -0,0 +1,248 @@
+package ru.evotor.userservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private static EmbeddedPostgres primaryPostgres;
+
+    private static EmbeddedPostgres replicaPostgres;
+
+    private HikariDataSource primary;
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeAll
+    static void startDatabases() throws IOException {
+        primaryPostgres = EmbeddedPostgres.start();
+        replicaPostgres = EmbeddedPostgres.start();
+        createNode(primaryPostgres, "primary");
+        createNode(replicaPostgres, "replica");
+    }
+
+    @AfterAll
+    static void stopDatabases() throws IOException {
+        primaryPostgres.close();
+        replicaPostgres.close();
+    }
+
+    @AfterEach
+    void closePools() {
+        ReplicaRoutingDataSource.setReadYourWrites(false);
+        if (entityManagerFactory != null) {
+            entityManagerFactory.close();
+            entityManagerFactory = null;
+        }
+        routingDataSource.close();
+        primary.close();
+    }
+
+    @Test
+    void readOnlyTransaction_shouldUseReplica_whenReadYourWritesIsNotRequested() {
+        TransactionTemplate transactionTemplate = transactionTemplate(ReplicaRoutingDataSource.Balancing.ROUND_ROBIN, 1);
+        transactionTemplate.setReadOnly(true);
+
+        assertEquals("replica", transactionTemplate.execute(status -> currentNode()));
+    }
+
+    @Test
+    void readWriteTransaction_shouldUsePrimary() {
+        TransactionTemplate transactionTemplate = transactionTemplate(ReplicaRoutingDataSource.Balancing.ROUND_ROBIN, 1);
+
+        assertEquals("primary", transactionTemplate.execute(status -> currentNode()));
+    }
+
+    @Test
+    void readOnlyTransaction_shouldUsePrimary_whenReadYourWritesIsRequested() {
+        TransactionTemplate transactionTemplate = transactionTemplate(ReplicaRoutingDataSource.Balancing.ROUND_ROBIN, 1);
+        transactionTemplate.setReadOnly(true);
+        ReplicaRoutingDataSource.setReadYourWrites(true);
+
+        assertEquals("primary", transactionTemplate.execute(status -> currentNode()));
+    }
+
+    @Test
+    void determineCurrentLookupKey_shouldAlternateReplicas_whenBalancingIsRoundRobin() {
+        TransactionTemplate transactionTemplate = transactionTemplate(ReplicaRoutingDataSource.Balancing.ROUND_ROBIN, 2);
+        transactionTemplate.setReadOnly(true);
+
+        List<Object> keys = transactionTemplate.execute(status -> List.of(
+                routingDataSource.determineCurrentLookupKey(),
+                routingDataSource.determineCurrentLookupKey(),
+                routingDataSource.determineCurrentLookupKey()));
+
+        assertEquals(List.of(0, 1, 0), keys);
+    }
+
+    @Test
+    void determineCurrentLookupKey_shouldSkipBusyReplica_whenBalancingIsLeastConnections() throws Exception {
+        TransactionTemplate transactionTemplate =
+                transactionTemplate(ReplicaRoutingDataSource.Balancing.LEAST_CONNECTIONS, 2);
+        transactionTemplate.setReadOnly(true);
+
+        try (Connection ignored = routingDataSource.getResolvedDataSources().get(0).getConnection()) {
+            List<Object> keys = transactionTemplate.execute(status -> List.of(
+                    routingDataSource.determineCurrentLookupKey(),
+                    routingDataSource.determineCurrentLookupKey()));
+
+            assertEquals(List.of(1, 1), keys);
+        }
+    }
+
+    @Test
+    void jpaTransaction_shouldUseReplicaWithoutPuttingIntoHibernateCaches_whenReadOnly() {
+        TransactionTemplate transactionTemplate = jpaTransactionTemplate();
+        transactionTemplate.setReadOnly(true);
+
+        List<Object> nodeAndCacheMode = transactionTemplate.execute(status -> List.of(
+                currentJpaNode(), currentEntityManager().unwrap(Session.class).getCacheMode()));
+
+        assertEquals(List.of("replica", CacheMode.GET), nodeAndCacheMode);
+    }
+
+    @Test
+    void jpaTransaction_shouldUsePrimaryAndHibernateCaches_whenReadYourWritesIsRequested() {
+        TransactionTemplate transactionTemplate = jpaTransactionTemplate();
+        transactionTemplate.setReadOnly(true);
+        ReplicaRoutingDataSource.setReadYourWrites(true);
+
+        List<Object> nodeAndCacheMode = transactionTemplate.execute(status -> List.of(
+                currentJpaNode(), currentEntityManager().unwrap(Session.class).getCacheMode()));
+
+        assertEquals(List.of("primary", CacheMode.NORMAL), nodeAndCacheMode);
+    }
+
+    @Test
+    void jpaTransaction_shouldUsePrimary_whenReadWrite() {
+        TransactionTemplate transactionTemplate = jpaTransactionTemplate();
+
+        assertEquals("primary", transactionTemplate.execute(status -> currentJpaNode()));
+    }
+
+    @Test
+    void jpaTransaction_shouldBeTrackedAsWrite_untilMaxLagHasPassedAfterItCompleted() {
+        TransactionTemplate transactionTemplate = jpaTransactionTemplate();
+
+        boolean writingDuringTransaction = transactionTemplate.execute(status ->
+                ReplicaRoutingDataSource.isWrittenWithin(Duration.ZERO));
+
+        assertTrue(writingDuringTransaction);
+        assertTrue(ReplicaRoutingDataSource.isWrittenWithin(Duration.ofMinutes(1)));
+        assertFalse(ReplicaRoutingDataSource.isWrittenWithin(Duration.ZERO));
+    }
+
+    @Test
+    void readFromPrimary_shouldUsePrimary_onlyWithinMaxLagAfterWrite() {
+        TransactionTemplate transactionTemplate = transactionTemplate(ReplicaRoutingDataSource.Balancing.ROUND_ROBIN, 1);
+        transactionTemplate.setReadOnly(true);
+        Reader reader = new Reader(() -> transactionTemplate.execute(status -> currentNode()));
+
+        ReplicaRoutingDataSource.beginWrite();
+        ReplicaRoutingDataSource.endWrite();
+
+        assertEquals("primary", readerProxy(reader, Duration.ofMinutes(1)).currentNode());
+        assertEquals("replica", readerProxy(reader, Duration.ZERO).currentNode());
+        assertFalse(ReplicaRoutingDataSource.isReadYourWrites());
+    }
+
+    private static Reader readerProxy(Reader reader, Duration maxLag) {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(reader);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new ReadFromPrimaryAspect(maxLag));
+        return proxyFactory.getProxy();
+    }
+
+    private TransactionTemplate jpaTransactionTemplate() {
+        transactionTemplate(ReplicaRoutingDataSource.Balancing.ROUND_ROBIN, 1);
+
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(jdbcTemplate.getDataSource());
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setPackagesToScan(ReplicaRoutingDataSourceTest.class.getPackageName());
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+
+        return new TransactionTemplate(new ReplicaJpaTransactionManager(entityManagerFactory, routingDataSource));
+    }
+
+    private EntityManager currentEntityManager() {
+        return EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+    }
+
+    private String currentJpaNode() {
+        return (String) currentEntityManager().createNativeQuery("select name from node").getSingleResult();
+    }
+
+    private TransactionTemplate transactionTemplate(ReplicaRoutingDataSource.Balancing balancing, int replicas) {
+        primary = pool(primaryPostgres);
+        List<HikariDataSource> replicaPools = replicas == 1
+                ? List.of(pool(replicaPostgres))
+                : List.of(pool(replicaPostgres), pool(replicaPostgres));
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicaPools, balancing);
+        routingDataSource.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        return new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    static class Reader {
+
+        private final Supplier<String> node;
+
+        Reader(Supplier<String> node) {
+            this.node = node;
+        }
+
+        @ReadFromPrimary
+        public String currentNode() {
+            return node.get();
+        }
+    }
+
+    private static HikariDataSource pool(EmbeddedPostgres postgres) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(postgres.getJdbcUrl("postgres", "postgres"));
+        dataSource.setMaximumPoolSize(2);
+        return dataSource;
+    }
+
+    private static void createNode(EmbeddedPostgres postgres, String name) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        jdbcTemplate.execute("create table node(name text)");
+        jdbcTemplate.update("insert into node(name) values (?)", name);
+    }
+}
@@ -0,0 +1,272 @@
+package ru.evotor.userservice.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.evotor.userservice.exception.UserVersionConflictException;
+import ru.evotor.userservice.model.User;
+import ru.evotor.userservice.model.UserBatch;
+import ru.evotor.userservice.service.ReactiveUserService;
+import ru.evotor.userservice.wrapper.DateRange;
+import ru.evotor.userservice.wrapper.FullName;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * The fixtures of {@link UserControllerTest} against {@link ReactiveUserController}, which must answer with the
+ * same paths, bodies and status codes.
+ */
+@WebFluxTest(ReactiveUserController.class)
+class ReactiveUserControllerTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @MockBean
+    ReactiveUserService userService;
+
+    final String BASE_URL = "/user";
+
+    @Test
+    void getAllUsers_shouldReturnEmptyList_whenNoUsersInDataBase() {
+        when(userService.getAllUsers()).thenReturn(Mono.just(List.of()));
+
+        webTestClient.get().uri(BASE_URL).exchange()
+                .expectStatus().isOk()
+                .expectBody().json("[]");
+    }
+
+    @Test
+    void getAllUsers_shouldReturnUsersPage_whenAfterIdAndLimitAreGiven() {
+        when(userService.getUsersPage(10L, 1)).thenReturn(Flux.just(new User(11L, "f", "l", "p", new Date(0))));
+
+        webTestClient.get().uri(BASE_URL + "?afterId=10&limit=1").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].id").isEqualTo(11);
+        verify(userService, never()).getAllUsers();
+    }
+
+    @Test
+    void getAllUsers_shouldReturnBadRequest_whenLimitIsOutOfRange() {
+        when(userService.getUsersPage(null, 0)).thenReturn(Flux.error(new IllegalArgumentException()));
+
+        webTestClient.get().uri(BASE_URL + "?limit=0").exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void getUserById_shouldReturnNotFound_whenUserNotExists() {
+        when(userService.getUserById(1L)).thenReturn(Mono.empty());
+
+        webTestClient.get().uri(BASE_URL + "/find?id=1").exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class).isEqualTo("No user with such id");
+    }
+
+    @Test
+    void getUserById_shouldReturnUser_whenUserWithIdExistsInDataBase() {
+        when(userService.getUserById(1L)).thenReturn(Mono.just(new User(1L, "f", "l", "p", new Date(0))));
+
+        String expected = "{" +
+                "'id' : 1," +
+                "'firstName':'f'," +
+                "'lastName':'l'," +
+                "'patronymic':'p'," +
+                "'dateOfBirth':'1970-01-01T00:00:00.000+00:00'}";
+
+        webTestClient.get().uri(BASE_URL + "/find?id=1").exchange()
+                .expectStatus().isOk()
+                .expectBody().json(expected);
+    }
+
+    @Test
+    void getUserById_shouldReturnETagFromVersion_whenUserWithIdExistsInDataBase() {
+        when(userService.getUserById(1L)).thenReturn(Mono.just(new User(1L, "f", "l", "p", new Date(0), 3L)));
+
+        webTestClient.get().uri(BASE_URL + "/find?id=1").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "W/\"1-3\"");
+    }
+
+    @Test
+    void getUsersByIds_shouldReturnUsersAndMissingIds() {
+        when(userService.getUsersByIds(List.of(2L, 1L))).thenReturn(Mono.just(
+                new UserBatch(List.of(new User(2L, "f", "l", "p", new Date(0))), List.of(1L))));
+
+        webTestClient.post().uri(BASE_URL + "/find/batch").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[2, 1]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.users[0].id").isEqualTo(2)
+                .jsonPath("$.missingIds[0]").isEqualTo(1);
+    }
+
+    @Test
+    void getUsersByFullNamePartsQuery_shouldReturnCacheableUsers_whenNamePartsAreQueryParameters() {
+        when(userService.getUsersByFullNameParts(new FullName("f", "l", null)))
+                .thenReturn(Mono.just(List.of(new User(1L, "f", "l", "p", new Date(0)))));
+
+        webTestClient.get().uri(BASE_URL + "/find/full-name?firstName=f&lastName=l").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("Cache-Control", "max-age=30, public")
+                .expectHeader().exists("ETag")
+                .expectBody().jsonPath("$[0].id").isEqualTo(1);
+    }
+
+    @Test
+    void getUsersByFullNamePartsQuery_shouldReturnBadRequest_whenFullNameFieldsAreNull() {
+        when(userService.getUsersByFullNameParts(new FullName()))
+                .thenReturn(Mono.error(new IllegalArgumentException("Can not find user with such parameters")));
+
+        webTestClient.get().uri(BASE_URL + "/find/full-name").exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("Can not find user with such parameters");
+    }
+
+    @Test
+    void getUsersByDateOfBirthQuery_shouldParseIsoDates_whenDatesAreQueryParameters() {
+        DateRange dateRange = new DateRange(new Date(0), new Date(86400000L));
+        when(userService.getUsersByDateOfBirthRange(dateRange)).thenReturn(Mono.just(List.of()));
+
+        webTestClient.get().uri(BASE_URL + "/find/date-of-birth?dateFrom=1970-01-01&dateTo=1970-01-02").exchange()
+                .expectStatus().isOk()
+                .expectBody().json("[]");
+    }
+
+    @Test
+    void countUsersByDateOfBirth_shouldBindDateRangeFromQueryParameters() {
+        when(userService.countUsersByDateOfBirthRange(new DateRange(new Date(0), new Date(86400000L))))
+                .thenReturn(Mono.just(3L));
+
+        webTestClient.get().uri(BASE_URL + "/count/date-of-birth?dateFrom=1970-01-01&dateTo=1970-01-02").exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("3");
+    }
+
+    @Test
+    void countUsersByYearOfBirth_shouldBindDateRangeFromQueryParameters() {
+        when(userService.countUsersByYearOfBirth(new DateRange(new Date(0), null)))
+                .thenReturn(Mono.just(new TreeMap<>(Map.of(1970, 2L))));
+
+        webTestClient.get().uri(BASE_URL + "/count/date-of-birth/by-year?dateFrom=1970-01-01").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.1970").isEqualTo(2);
+    }
+
+    @Test
+    void streamUsersByFullNameParts_shouldWriteJsonArray_whenUsersAreFound() {
+        when(userService.streamUsersByFullNameParts(new FullName("f", null, null))).thenReturn(Flux.just(
+                new User(1L, "f", "l", "p", new Date(0), 0L),
+                new User(2L, "f", "m", "q", new Date(0), 0L)));
+
+        webTestClient.get().uri(BASE_URL + "/find/full-name/stream?firstName=f").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo(1)
+                .jsonPath("$[1].id").isEqualTo(2);
+    }
+
+    @Test
+    void createUsers_shouldReturnGeneratedIds_whenUsersAreCreated() {
+        when(userService.createUsers(anyList())).thenReturn(Mono.just(List.of(5L, 6L)));
+
+        webTestClient.post().uri(BASE_URL + "/batch").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(new User(null, "f", "l", "p", new Date(0)), new User(null, "a", "b", "c", new Date(0))))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("[5, 6]");
+    }
+
+    @Test
+    void createUsers_shouldReturnBadRequest_whenUsersListIsEmpty() {
+        when(userService.createUsers(anyList())).thenReturn(Mono.error(new IllegalArgumentException()));
+
+        webTestClient.post().uri(BASE_URL + "/batch").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[]")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void updateUser_shouldReturnNotFound_whenNoSuchUserInDataBase() {
+        when(userService.updateUser(new User())).thenReturn(Mono.empty());
+
+        webTestClient.post().uri(BASE_URL + "/update").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new User())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void updateUser_shouldReturnUpdatedUser_whenUserInDataBase() {
+        User inputUser = new User(1L, "f", "l", "p", new Date(0));
+        when(userService.updateUser(inputUser)).thenReturn(Mono.just(new User(1L, "f", "l", "p", new Date(0), 1L)));
+
+        webTestClient.post().uri(BASE_URL + "/update").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(inputUser)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.version").isEqualTo(1);
+    }
+
+    @Test
+    void updateUser_shouldReturnConflict_whenUserVersionChanged() {
+        User inputUser = new User(1L, "f", "l", "p", new Date(0), 1L);
+        when(userService.updateUser(inputUser))
+                .thenReturn(Mono.error(new UserVersionConflictException("User was modified by another request")));
+
+        webTestClient.post().uri(BASE_URL + "/update").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(inputUser)
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    void deleteUser_shouldReturnNotFound_whenNoSuchUserInDataBase() {
+        when(userService.deleteUser(1L)).thenReturn(Mono.empty());
+
+        webTestClient.delete().uri(BASE_URL + "/delete?id=1").exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class).isEqualTo("No user with such id");
+    }
+
+    @Test
+    void deleteUsers_shouldReturnDeletedCount_whenIdsAreGiven() {
+        when(userService.deleteUsers(List.of(1L, 2L, 3L))).thenReturn(Mono.just(2));
+
+        webTestClient.post().uri(BASE_URL + "/delete/batch").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[1, 2, 3]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("2");
+    }
+
+    @Test
+    void searchUsersByName_shouldReturnRankedUsers_whenQueryMatches() {
+        when(userService.searchUsersByName("petro", null)).thenReturn(Flux.just(
+                new User(1L, "Petr", "Petrov", "Petrovich", new Date(0)),
+                new User(2L, "Petr", "Petrenko", "Ivanovich", new Date(0))));
+
+        webTestClient.get().uri(BASE_URL + "/search?q=petro").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo(1)
+                .jsonPath("$[1].id").isEqualTo(2);
+    }
+}
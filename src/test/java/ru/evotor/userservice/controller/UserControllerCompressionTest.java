@@ -0,0 +1,68 @@
+package ru.evotor.userservice.controller;
+
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.*;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.server.LocalServerPort;
+import ru.evotor.userservice.model.User;
+import ru.evotor.userservice.service.UserImportService;
+import ru.evotor.userservice.service.UserService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compression is done by the Tomcat connector, which {@link UserControllerTest} does not run.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class UserControllerCompressionTest {
+
+    @LocalServerPort
+    int port;
+
+    @MockBean
+    UserService userService;
+
+    @MockBean
+    UserImportService userImportService;
+
+    @Test
+    void getAllUsers_shouldReturnGzippedBodyWithETag_whenBodyIsLargerThanMinResponseSize() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            users.add(new User(id, "firstName" + id, "lastName" + id, "patronymic" + id, new Date(0), 1L));
+        }
+        when(userService.getAllUsers()).thenReturn(users);
+
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/user"))
+                        .header("Accept-Encoding", "gzip")
+                        .build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("ETag").orElseThrow().startsWith("W/"));
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        String body = gunzip(response.body());
+        assertTrue(body.length() > 2048);
+        assertTrue(body.contains("\"firstName\":\"firstName100\""));
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -5,27 +5,43 @@ import static org.hamcrest.Matchers.*;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.junit.jupiter.api.Test;
 import static org.mockito.Mockito.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
-import ru.evotor.userservice.exception.UserNotFoundException;
+import ru.evotor.userservice.config.ReplicaRoutingDataSource;
+import ru.evotor.userservice.config.WireFormatConfig;
+import ru.evotor.userservice.exception.UserVersionConflictException;
+import ru.evotor.userservice.model.ImportProgress;
+import ru.evotor.userservice.model.ImportReport;
 import ru.evotor.userservice.model.User;
+import ru.evotor.userservice.model.UserBatch;
+import ru.evotor.userservice.service.UserImportService;
 import ru.evotor.userservice.service.UserService;
 import ru.evotor.userservice.wrapper.DateRange;
 import ru.evotor.userservice.wrapper.FullName;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @WebMvcTest(UserController.class)
+@Import(WireFormatConfig.class)
 class UserControllerTest {
 
     @Autowired
@@ -34,13 +50,16 @@ class UserControllerTest {
     @MockBean
     UserService userService;
 
+    @MockBean
+    UserImportService userImportService;
+
     final String BASE_URL = "/user";
 
     @Test
-    void getAllUsers_shouldReturnBadRequest_whenNoUsersInDataBase() throws Exception {
-        when(userService.getAllUsers()).thenThrow(UserNotFoundException.class);
+    void getAllUsers_shouldReturnEmptyList_whenNoUsersInDataBase() throws Exception {
+        when(userService.getAllUsers()).thenReturn(List.of());
 
-        mockMvc.perform(get(BASE_URL)).andExpect(status().isBadRequest());
+        mockMvc.perform(get(BASE_URL)).andExpect(status().isOk()).andExpect(content().json("[]"));
     }
 
     @Test
@@ -52,13 +71,35 @@ class UserControllerTest {
     }
 
     @Test
-    void getUserById_shouldReturnBadRequest_whenUserNotExists() throws Exception {
+    void getAllUsers_shouldReturnUsersPage_whenAfterIdAndLimitAreGiven() throws Exception {
+        List<User> page = new ArrayList<>();
+        page.add(new User(11L, "f", "l", "p", new Date(0)));
+        when(userService.getUsersPage(10L, 1)).thenReturn(page);
+
+        mockMvc.perform(get(BASE_URL).param("afterId", "10").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(11)));
+        verify(userService, never()).getAllUsers();
+    }
+
+    @Test
+    void getAllUsers_shouldReturnBadRequest_whenLimitIsOutOfRange() throws Exception {
+        when(userService.getUsersPage(null, 0)).thenThrow(IllegalArgumentException.class);
+
+        mockMvc.perform(get(BASE_URL).param("limit", "0")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getUserById_shouldReturnNotFound_whenUserNotExists() throws Exception {
         String URL = BASE_URL + "/find";
         String idParam = "1";
         Long id = Long.valueOf(idParam);
-        when(userService.getUserById(id)).thenThrow(UserNotFoundException.class);
+        when(userService.getUserById(id)).thenReturn(Optional.empty());
 
-        mockMvc.perform(get(URL).param("id", idParam)).andExpect(status().isBadRequest());
+        mockMvc.perform(get(URL).param("id", idParam))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("No user with such id"));
     }
 
     @Test
@@ -67,7 +108,7 @@ class UserControllerTest {
         String idParam = "1";
         Long id = Long.valueOf(idParam);
         when(userService.getUserById(id))
-                .thenReturn(new User(1L, "f", "l", "p", new Date(0)));
+                .thenReturn(Optional.of(new User(1L, "f", "l", "p", new Date(0))));
 
         String expected = "{" +
                 "'id' : 1," +
@@ -80,6 +121,101 @@ class UserControllerTest {
                 .andExpect(status().isOk()).andExpect(content().json(expected));
     }
 
+    @Test
+    void getUserById_shouldReturnETagFromVersion_whenUserWithIdExistsInDataBase() throws Exception {
+        when(userService.getUserById(1L))
+                .thenReturn(Optional.of(new User(1L, "f", "l", "p", new Date(0), 3L)));
+
+        mockMvc.perform(get(BASE_URL + "/find").param("id", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"1-3\""));
+    }
+
+    @Test
+    void getUserById_shouldReturnNotModified_whenIfNoneMatchEqualsCurrentETag() throws Exception {
+        when(userService.getUserById(1L))
+                .thenReturn(Optional.of(new User(1L, "f", "l", "p", new Date(0), 3L)));
+
+        mockMvc.perform(get(BASE_URL + "/find").param("id", "1").header("If-None-Match", "W/\"1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getUserById_shouldReturnCbor_whenAcceptIsCbor() throws Exception {
+        User user = new User(1L, "f", "l", "p", new Date(0), 3L);
+        when(userService.getUserById(1L)).thenReturn(Optional.of(user));
+
+        byte[] body = mockMvc.perform(get(BASE_URL + "/find").param("id", "1").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("ETag", "W/\"1-3-cbor\""))
+                .andExpect(header().string("Vary", "Accept"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(user, new CBORMapper().readValue(body, User.class));
+    }
+
+    @Test
+    void getUserById_shouldNotReturnNotModified_whenIfNoneMatchIsTagOfAnotherFormat() throws Exception {
+        when(userService.getUserById(1L))
+                .thenReturn(Optional.of(new User(1L, "f", "l", "p", new Date(0), 3L)));
+
+        mockMvc.perform(get(BASE_URL + "/find").param("id", "1").accept(MediaType.APPLICATION_CBOR)
+                        .header("If-None-Match", "W/\"1-3\""))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(BASE_URL + "/find").param("id", "1").accept(MediaType.APPLICATION_CBOR)
+                        .header("If-None-Match", "W/\"1-3-cbor\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getAllUsers_shouldReturnSmile_whenAcceptIsSmile() throws Exception {
+        List<User> users = List.of(new User(1L, "f", "l", "p", new Date(0), 0L),
+                new User(2L, "g", "m", "q", new Date(0), 0L));
+        when(userService.getAllUsers()).thenReturn(users);
+
+        byte[] body = mockMvc.perform(get(BASE_URL).accept(WireFormatConfig.APPLICATION_SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(WireFormatConfig.APPLICATION_SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertArrayEquals(users.toArray(), new SmileMapper().readValue(body, User[].class));
+    }
+
+    @Test
+    void searchUsersByName_shouldChangeETag_whenAnyUserInResultIsUpdated() throws Exception {
+        User first = new User(1L, "Petr", "Petrov", "Petrovich", new Date(0), 0L);
+        User second = new User(2L, "Petr", "Petrenko", "Ivanovich", new Date(0), 0L);
+        User updatedSecond = new User(2L, "Petr", "Petrenko", "Ivanovich", new Date(0), 1L);
+        when(userService.searchUsersByName("petr", null))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of(first, updatedSecond));
+
+        String eTag = mockMvc.perform(get(BASE_URL + "/search").param("q", "petr"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get(BASE_URL + "/search").param("q", "petr").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get(BASE_URL + "/search").param("q", "petr").header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(eTag)))
+                .andExpect(jsonPath("$[1].version", is(1)));
+    }
+
+    @Test
+    void getUsersByIds_shouldReturnUsersAndMissingIds() throws Exception {
+        when(userService.getUsersByIds(List.of(2L, 1L)))
+                .thenReturn(new UserBatch(List.of(new User(2L, "f", "l", "p", new Date(0))), List.of(1L)));
+
+        mockMvc.perform(post(BASE_URL + "/find/batch").contentType(MediaType.APPLICATION_JSON).content("[2, 1]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0].id", is(2)))
+                .andExpect(jsonPath("$.missingIds", contains(1)));
+    }
+
     @Test
     void getUsersByFullNameParts_shouldReturnBadRequest_whenFullNameFieldsAreNull() throws Exception {
         String URL = BASE_URL + "/find/full-name";
@@ -101,7 +237,7 @@ class UserControllerTest {
     }
 
     @Test
-    void getUsersByFullNameParts_shouldReturnBadRequest_whenNoSuchUserInDataBase() throws Exception {
+    void getUsersByFullNameParts_shouldReturnEmptyList_whenNoSuchUserInDataBase() throws Exception {
         String URL = BASE_URL + "/find/full-name";
 
         FullName fullName = new FullName();
@@ -114,10 +250,10 @@ class UserControllerTest {
         ObjectWriter writer = mapper.writer().withDefaultPrettyPrinter();
         String requestJson = writer.writeValueAsString(fullName);
 
-        when(userService.getUsersByFullNameParts(fullName)).thenThrow(UserNotFoundException.class);
+        when(userService.getUsersByFullNameParts(fullName)).thenReturn(List.of());
 
         mockMvc.perform(get(URL).contentType(MediaType.APPLICATION_JSON).content(requestJson))
-                .andExpect(status().isBadRequest());
+                .andExpect(status().isOk()).andExpect(content().json("[]"));
     }
 
     @Test
@@ -158,7 +294,7 @@ class UserControllerTest {
     }
 
     @Test
-    void getUsersByDateOfBirth_shouldReturnBadRequest_whenNoSuchUserInDataBase() throws Exception {
+    void getUsersByDateOfBirth_shouldReturnEmptyList_whenNoSuchUserInDataBase() throws Exception {
         String URL = BASE_URL + "/find/date-of-birth";
 
         DateRange dateRange = new DateRange();
@@ -168,10 +304,10 @@ class UserControllerTest {
         ObjectWriter writer = mapper.writer().withDefaultPrettyPrinter();
         String requestJson = writer.writeValueAsString(dateRange);
 
-        when(userService.getUsersByDateOfBirthRange(dateRange)).thenThrow(UserNotFoundException.class);
+        when(userService.getUsersByDateOfBirthRange(dateRange)).thenReturn(List.of());
 
         mockMvc.perform(get(URL).contentType(MediaType.APPLICATION_JSON).content(requestJson))
-                .andExpect(status().isBadRequest());
+                .andExpect(status().isOk()).andExpect(content().json("[]"));
     }
 
     @Test
@@ -192,7 +328,171 @@ class UserControllerTest {
     }
 
     @Test
-    void updateUser_shouldReturnBadRequest_whenNoSuchUserInDataBase() throws Exception {
+    void getUsersByFullNamePartsQuery_shouldReturnCacheableUsers_whenNamePartsAreQueryParameters() throws Exception {
+        when(userService.getUsersByFullNameParts(new FullName("f", "l", null)))
+                .thenReturn(List.of(new User(1L, "f", "l", "p", new Date(0))));
+
+        mockMvc.perform(get(BASE_URL + "/find/full-name").param("firstName", "f").param("lastName", "l"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=30, public"))
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$[0].id", is(1)));
+    }
+
+    @Test
+    void getUsersByDateOfBirthQuery_shouldParseIsoDates_whenDatesAreQueryParameters() throws Exception {
+        DateRange dateRange = new DateRange(new Date(0), new Date(86400000L));
+        when(userService.getUsersByDateOfBirthRange(dateRange)).thenReturn(List.of());
+
+        mockMvc.perform(get(BASE_URL + "/find/date-of-birth")
+                        .param("dateFrom", "1970-01-01").param("dateTo", "1970-01-02"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=30, public"))
+                .andExpect(content().json("[]"));
+    }
+
+    @Test
+    void countUsersByDateOfBirth_shouldBindDateRangeFromQueryParameters() throws Exception {
+        when(userService.countUsersByDateOfBirthRange(new DateRange(new Date(0), new Date(86400000L)))).thenReturn(3L);
+
+        mockMvc.perform(get(BASE_URL + "/count/date-of-birth")
+                        .param("dateFrom", "1970-01-01").param("dateTo", "1970-01-02"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("3"));
+    }
+
+    @Test
+    void countUsersByYearOfBirth_shouldBindDateRangeFromQueryParameters() throws Exception {
+        when(userService.countUsersByYearOfBirth(new DateRange(new Date(0), null)))
+                .thenReturn(new TreeMap<>(Map.of(1970, 2L)));
+
+        mockMvc.perform(get(BASE_URL + "/count/date-of-birth/by-year").param("dateFrom", "1970-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.1970", is(2)));
+    }
+
+    @Test
+    void streamUsersByFullNameParts_shouldWriteJsonArray_whenUsersAreFound() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<User> users = invocation.getArgument(1);
+            users.accept(new User(1L, "f", "l", "p", new Date(0), 0L));
+            users.accept(new User(2L, "f", "m", "q", new Date(0), 0L));
+            return null;
+        }).when(userService).streamUsersByFullNameParts(eq(new FullName("f", null, null)), any());
+
+        MvcResult result = mockMvc.perform(get(BASE_URL + "/find/full-name/stream").param("firstName", "f"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains(1, 2)));
+    }
+
+    @Test
+    void streamUsersByFullNameParts_shouldKeepReadYourWritesOnAsyncThread_whenRequestHasIt() throws Exception {
+        Thread requestThread = Thread.currentThread();
+        List<Boolean> readYourWritesOnAsyncThread = new ArrayList<>();
+        doAnswer(invocation -> {
+            assertNotSame(requestThread, Thread.currentThread());
+            readYourWritesOnAsyncThread.add(ReplicaRoutingDataSource.isReadYourWrites());
+            return null;
+        }).when(userService).streamUsersByFullNameParts(eq(new FullName("f", null, null)), any());
+
+        ReplicaRoutingDataSource.setReadYourWrites(true);
+        MvcResult result;
+        try {
+            result = mockMvc.perform(get(BASE_URL + "/find/full-name/stream").param("firstName", "f"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+        } finally {
+            ReplicaRoutingDataSource.setReadYourWrites(false);
+        }
+
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        assertEquals(List.of(true), readYourWritesOnAsyncThread);
+    }
+
+    @Test
+    void streamUsersByDateOfBirth_shouldWriteEmptyArray_whenNoUserIsFound() throws Exception {
+        MvcResult result = mockMvc.perform(get(BASE_URL + "/find/date-of-birth/stream")
+                        .param("dateFrom", "1970-01-01"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+    }
+
+    @Test
+    void streamUsersByFullNameParts_shouldReturnBadRequest_whenFullNameFieldsAreNull() throws Exception {
+        doThrow(IllegalArgumentException.class).when(userService).streamUsersByFullNameParts(any(), any());
+
+        MvcResult result = mockMvc.perform(get(BASE_URL + "/find/full-name/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createUsers_shouldReturnGeneratedIds_whenUsersAreCreated() throws Exception {
+        String URL = BASE_URL + "/batch";
+
+        List<User> users = new ArrayList<>();
+        users.add(new User(null, "f", "l", "p", new Date(0)));
+        users.add(new User(null, "a", "b", "c", new Date(0)));
+
+        ObjectMapper mapper = new ObjectMapper();
+        String requestJson = mapper.writeValueAsString(users);
+
+        when(userService.createUsers(anyList())).thenReturn(List.of(5L, 6L));
+
+        mockMvc.perform(post(URL).contentType(MediaType.APPLICATION_JSON).content(requestJson))
+                .andExpect(status().isOk()).andExpect(content().json("[5, 6]"));
+    }
+
+    @Test
+    void createUsers_shouldReturnBadRequest_whenUsersListIsEmpty() throws Exception {
+        String URL = BASE_URL + "/batch";
+
+        when(userService.createUsers(anyList())).thenThrow(IllegalArgumentException.class);
+
+        mockMvc.perform(post(URL).contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamImportUsers_shouldWriteProgressLinesAndReport_whenBatchesAreWritten() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<ImportProgress> progress = invocation.getArgument(1);
+            progress.accept(new ImportProgress(1, 2, 0, 5));
+            progress.accept(new ImportProgress(2, 3, 0, 7));
+            ImportReport report = new ImportReport();
+            report.addBatch(2);
+            report.addBatch(1);
+            return report;
+        }).when(userImportService).importUsers(any(), any());
+
+        MvcResult result = mockMvc.perform(post(BASE_URL + "/import/stream").contentType("text/csv")
+                        .content("Petr,Petrov,Petrovich,1970-07-11\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"importedRows\":2"), lines[0]);
+        assertTrue(lines[1].contains("\"batches\":2"), lines[1]);
+        assertTrue(lines[2].contains("\"rejected\":[]"), lines[2]);
+    }
+
+    @Test
+    void updateUser_shouldReturnNotFound_whenNoSuchUserInDataBase() throws Exception {
         String URL = BASE_URL + "/update";
 
         User user = new User();
@@ -202,10 +502,10 @@ class UserControllerTest {
         ObjectWriter writer = mapper.writer().withDefaultPrettyPrinter();
         String requestJson = writer.writeValueAsString(user);
 
-        when(userService.updateUser(user)).thenThrow(UserNotFoundException.class);
+        when(userService.updateUser(user)).thenReturn(Optional.empty());
 
         mockMvc.perform(post(URL).contentType(MediaType.APPLICATION_JSON).content(requestJson))
-                .andExpect(status().isBadRequest());
+                .andExpect(status().isNotFound());
     }
 
     @Test
@@ -219,12 +519,58 @@ class UserControllerTest {
         ObjectWriter writer = mapper.writer().withDefaultPrettyPrinter();
         String requestJson = writer.writeValueAsString(inputUser);
 
-        User updatedUser = new User(1L, "f", "l", "p", new Date(0));
+        User updatedUser = new User(1L, "f", "l", "p", new Date(0), 1L);
 
-        when(userService.updateUser(inputUser)).thenReturn(updatedUser);
+        when(userService.updateUser(inputUser)).thenReturn(Optional.of(updatedUser));
 
         mockMvc.perform(post(URL).contentType(MediaType.APPLICATION_JSON).content(requestJson))
                 .andExpect(status().isOk())
-                .andExpect(content().string(containsString("User successfully updated")));
+                .andExpect(jsonPath("$.id", is(1)))
+                .andExpect(jsonPath("$.version", is(1)));
+    }
+
+    @Test
+    void updateUser_shouldReturnConflict_whenUserVersionChanged() throws Exception {
+        String URL = BASE_URL + "/update";
+
+        User inputUser = new User(1L, "f", "l", "p", new Date(0), 1L);
+
+        ObjectMapper mapper = new ObjectMapper();
+        String requestJson = mapper.writeValueAsString(inputUser);
+
+        when(userService.updateUser(inputUser)).thenThrow(UserVersionConflictException.class);
+
+        mockMvc.perform(post(URL).contentType(MediaType.APPLICATION_JSON).content(requestJson))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void deleteUser_shouldReturnNotFound_whenNoSuchUserInDataBase() throws Exception {
+        when(userService.deleteUser(1L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(delete(BASE_URL + "/delete").param("id", "1"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("No user with such id"));
+    }
+
+    @Test
+    void deleteUsers_shouldReturnDeletedCount_whenIdsAreGiven() throws Exception {
+        when(userService.deleteUsers(List.of(1L, 2L, 3L))).thenReturn(2);
+
+        mockMvc.perform(post(BASE_URL + "/delete/batch").contentType(MediaType.APPLICATION_JSON).content("[1, 2, 3]"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("2"));
+    }
+
+    @Test
+    void searchUsersByName_shouldReturnRankedUsers_whenQueryMatches() throws Exception {
+        List<User> users = List.of(new User(1L, "Petr", "Petrov", "Petrovich", new Date(0)),
+                new User(2L, "Petr", "Petrenko", "Ivanovich", new Date(0)));
+        when(userService.searchUsersByName("petro", null)).thenReturn(users);
+
+        mockMvc.perform(get(BASE_URL + "/search").param("q", "petro"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[1].id", is(2)));
     }
 }
@@ -0,0 +1,78 @@
+package ru.evotor.userservice.index;
+
+import org.junit.jupiter.api.Test;
+import ru.evotor.userservice.model.User;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DateOfBirthIndexTest {
+
+    private static final LocalDate EPOCH = LocalDate.ofEpochDay(0);
+
+    private final DateOfBirthIndex dateOfBirthIndex = new DateOfBirthIndex(true);
+
+    @Test
+    void findIds_shouldReturnIdsOrderedByDateOfBirth_whenRangeIsInclusive() {
+        dateOfBirthIndex.put(user(1L, 10));
+        dateOfBirthIndex.put(user(2L, 5));
+        dateOfBirthIndex.put(user(3L, 7));
+        dateOfBirthIndex.put(user(4L, 12));
+
+        assertArrayEquals(new long[]{2L, 3L, 1L}, dateOfBirthIndex.findIds(5, 10));
+        assertEquals(3, dateOfBirthIndex.count(5, 10));
+        assertEquals(0, dateOfBirthIndex.count(10, 5));
+    }
+
+    @Test
+    void findIds_shouldOrderByDayAndId_whenWritesArriveOutOfOrder() {
+        for (long id = 9; id >= 1; id--) {
+            dateOfBirthIndex.put(user(id, (int) (id % 3)));
+        }
+
+        assertArrayEquals(new long[]{3L, 6L, 9L, 1L, 4L, 7L, 2L, 5L, 8L}, dateOfBirthIndex.findIds(0, 2));
+    }
+
+    @Test
+    void count_shouldFollowUpdatesAndDeletes() {
+        dateOfBirthIndex.put(user(1L, 10));
+        dateOfBirthIndex.put(user(2L, 10));
+
+        dateOfBirthIndex.put(user(1L, 20));
+        dateOfBirthIndex.remove(2L);
+        dateOfBirthIndex.remove(3L);
+
+        assertEquals(0, dateOfBirthIndex.count(10, 10));
+        assertArrayEquals(new long[]{1L}, dateOfBirthIndex.findIds(0, 30));
+        assertEquals(1, dateOfBirthIndex.getEntries());
+    }
+
+    @Test
+    void count_shouldStayExact_whenBufferedWritesAreMerged() {
+        for (long id = 1; id <= 10_000; id++) {
+            dateOfBirthIndex.put(user(id, (int) (id % 100)));
+        }
+        for (long id = 1; id <= 10_000; id += 2) {
+            dateOfBirthIndex.remove(id);
+        }
+        for (long id = 2; id <= 10_000; id += 4) {
+            dateOfBirthIndex.put(user(id, 500));
+        }
+
+        assertEquals(2500, dateOfBirthIndex.count(500, 500));
+        assertEquals(2500, dateOfBirthIndex.count(0, 99));
+        assertEquals(100, dateOfBirthIndex.count(4, 4));
+        assertEquals(5000, dateOfBirthIndex.findIds(Integer.MIN_VALUE, Integer.MAX_VALUE).length);
+    }
+
+    @Test
+    void toEpochDay_shouldUseLocalDate_whenDateIsSqlDate() {
+        assertEquals(365, DateOfBirthIndex.toEpochDay(Date.valueOf("1971-01-01")));
+    }
+
+    private static User user(Long id, int epochDay) {
+        return new User(id, "f", "l", "p", Date.valueOf(EPOCH.plusDays(epochDay)), 0L);
+    }
+}
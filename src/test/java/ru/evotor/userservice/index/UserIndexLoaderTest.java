@@ -0,0 +1,83 @@
+package ru.evotor.userservice.index;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "user-service.index.sync-interval-ms=3600000")
+class UserIndexLoaderTest {
+
+    private static final EmbeddedPostgres postgres = startPostgres();
+
+    private static final int DAY = DateOfBirthIndex.toEpochDay(LocalDate.of(1901, 2, 3));
+
+    @Autowired
+    private UserIndexLoader userIndexLoader;
+
+    @Autowired
+    private UserNameIndex userNameIndex;
+
+    @Autowired
+    private DateOfBirthIndex dateOfBirthIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void dataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void syncChanges_shouldApplyWrites_whenTheyBypassedTheService() {
+        assertTrue(dateOfBirthIndex.isReady());
+        assertTrue(userNameIndex.isReady());
+
+        Long id = jdbcTemplate.queryForObject("insert into users(first_name, last_name, patronymic, date_of_birth) " +
+                "values ('Other', 'Instance', 'P', date '1901-02-03') returning id", Long.class);
+        assertEquals(0, dateOfBirthIndex.count(DAY, DAY));
+
+        userIndexLoader.syncChanges();
+
+        assertEquals(1, dateOfBirthIndex.count(DAY, DAY));
+        assertArrayEquals(new long[]{id}, userNameIndex.find("Other", "Instance", null));
+
+        jdbcTemplate.update("update users set date_of_birth = date '1901-02-04' where id = ?", id);
+        userIndexLoader.syncChanges();
+
+        assertEquals(0, dateOfBirthIndex.count(DAY, DAY));
+        assertEquals(1, dateOfBirthIndex.count(DAY + 1, DAY + 1));
+
+        jdbcTemplate.update("delete from users where id = ?", id);
+        userIndexLoader.syncChanges();
+
+        assertEquals(0, dateOfBirthIndex.count(DAY, DAY + 1));
+        assertArrayEquals(new long[0], userNameIndex.find("Other", null, null));
+    }
+
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.evotor.userservice.index;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.evotor.userservice.model.User;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserNameIndexTest {
+
+    private final UserNameIndex userNameIndex = new UserNameIndex(true);
+
+    @Test
+    void find_shouldIntersectPostings_whenSeveralNamePartsAreGiven() {
+        userNameIndex.put(user(3L, "Petr", "Petrov", "Petrovich"));
+        userNameIndex.put(user(1L, "Petr", "Ivanov", "Petrovich"));
+        userNameIndex.put(user(2L, "Ivan", "Petrov", "Petrovich"));
+
+        assertArrayEquals(new long[]{1L, 3L}, userNameIndex.find("Petr", null, null));
+        assertArrayEquals(new long[]{3L}, userNameIndex.find("Petr", "Petrov", "Petrovich"));
+        assertArrayEquals(new long[]{1L, 2L, 3L}, userNameIndex.find(null, null, "Petrovich"));
+        assertArrayEquals(new long[0], userNameIndex.find("Semen", "Petrov", null));
+    }
+
+    @Test
+    void find_shouldIgnoreCaseAndSurroundingWhitespace() {
+        userNameIndex.put(user(1L, "Petr", "Petrov", "Petrovich"));
+
+        assertArrayEquals(new long[]{1L}, userNameIndex.find(" PETR ", "petrov", null));
+    }
+
+    @Test
+    void put_shouldMoveOnlyChangedPostings_whenUserWasRenamed() {
+        userNameIndex.put(user(1L, "Petr", "Petrov", "Petrovich"));
+        userNameIndex.put(user(1L, "Petr", "Ivanov", "Petrovich"));
+
+        assertArrayEquals(new long[0], userNameIndex.find(null, "Petrov", null));
+        assertArrayEquals(new long[]{1L}, userNameIndex.find("Petr", "Ivanov", null));
+        assertEquals(3, userNameIndex.getTerms());
+    }
+
+    @Test
+    void remove_shouldKeepTermOfOtherField_whenSameTermIsStillUsed() {
+        userNameIndex.put(user(1L, "Ivan", "Ivanov", "Ivanovich"));
+        userNameIndex.put(user(2L, "Petr", "Ivan", "Petrovich"));
+        userNameIndex.put(user(3L, "Semen", "Semenov", "Semenovich"));
+
+        userNameIndex.remove(1L);
+        userNameIndex.put(user(3L, "Ivan", "Semenov", "Semenovich"));
+
+        assertArrayEquals(new long[]{2L}, userNameIndex.find(null, "Ivan", null));
+        assertArrayEquals(new long[]{3L}, userNameIndex.find("Ivan", null, null));
+        assertArrayEquals(new long[0], userNameIndex.find(null, "Ivanov", null));
+    }
+
+    @Test
+    void remove_shouldDropPostingsAndShrinkGauges_whenUserWasDeleted() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        userNameIndex.bindTo(registry);
+        userNameIndex.put(user(1L, "Petr", "Petrov", "Petrovich"));
+        double memoryOfOneUser = registry.get("user.index.memory").gauge().value();
+        userNameIndex.put(user(2L, "Ivan", "Ivanov", "Petrovich"));
+
+        userNameIndex.remove(2L);
+        userNameIndex.remove(3L);
+
+        assertArrayEquals(new long[0], userNameIndex.find("Ivan", null, null));
+        assertArrayEquals(new long[]{1L}, userNameIndex.find(null, null, "Petrovich"));
+        assertEquals(3, registry.get("user.index.terms").gauge().value());
+        assertEquals(memoryOfOneUser, registry.get("user.index.memory").gauge().value());
+
+        userNameIndex.remove(1L);
+
+        assertEquals(0, registry.get("user.index.terms").gauge().value());
+    }
+
+    private static User user(Long id, String firstName, String lastName, String patronymic) {
+        return new User(id, firstName, lastName, patronymic, new Date(0), 0L);
+    }
+}
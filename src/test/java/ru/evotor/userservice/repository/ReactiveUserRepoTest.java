@@ -0,0 +1,77 @@
+package ru.evotor.userservice.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.evotor.userservice.model.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+class ReactiveUserRepoTest {
+
+    private static final EmbeddedPostgres postgres = startPostgres();
+
+    @Autowired
+    private ReactiveUserRepo reactiveUserRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void dataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("user-service.r2dbc.url", () -> "r2dbc:postgresql://localhost:" + postgres.getPort() + "/postgres");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void insertAll_shouldReturnCreatedUsersInGivenOrder() {
+        List<User> users = reactiveUserRepo.insertAll(List.of(
+                new User(null, "Batch", "First", "P", Date.valueOf("1980-01-01")),
+                new User(null, "Batch", "Second", "P", Date.valueOf("1990-01-01")),
+                new User(null, "Batch", "Third", "P", Date.valueOf("2000-01-01")))).collectList().block();
+
+        assertEquals(List.of("First", "Second", "Third"), users.stream().map(User::getLastName).collect(Collectors.toList()));
+        assertTrue(users.get(0).getId() < users.get(1).getId() && users.get(1).getId() < users.get(2).getId());
+        assertEquals(Date.valueOf("1990-01-01"), users.get(1).getDateOfBirth());
+    }
+
+    @Test
+    void insertAll_shouldCreateNoUser_whenAnyUserViolatesTableConstraints() {
+        List<User> users = List.of(
+                new User(null, "Rolled", "Back", "P", Date.valueOf("1980-01-01")),
+                new User(null, "Rolled", null, "P", Date.valueOf("1980-01-01")));
+
+        assertThrows(RuntimeException.class, () -> reactiveUserRepo.insertAll(users).collectList().block());
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from users where first_name = 'Rolled'",
+                Integer.class));
+    }
+
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ru.evotor.userservice.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.evotor.userservice.entity.UserEntity;
+import ru.evotor.userservice.model.User;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"user-service.index.name.enabled=false", "user-service.index.date-of-birth.enabled=false"})
+class UserRepoCacheTest {
+
+    private static final EmbeddedPostgres postgres = startPostgres();
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    @DynamicPropertySource
+    static void dataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void clearStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findByFirstNameAndLastName_shouldHitQueryCache_whenRepeated() {
+        userRepo.save(new UserEntity(null, "Cached", "Query", "P", new Date(0)));
+
+        userRepo.findByFirstNameAndLastName("Cached", "Query");
+        userRepo.findByFirstNameAndLastName("Cached", "Query");
+
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void findByFirstNameAndLastName_shouldReturnUpdatedUser_whenUpdatedWithJdbc() {
+        UserEntity saved = userRepo.save(new UserEntity(null, "Stale", "Query", "P", new Date(0)));
+        assertEquals(1, userRepo.findByFirstNameAndLastName("Stale", "Query").size());
+
+        userRepo.updateNonNullFields(new User(saved.getId(), "Fresh", null, null, null));
+
+        assertTrue(userRepo.findByFirstNameAndLastName("Stale", "Query").isEmpty());
+        assertEquals("Fresh", userRepo.findById(saved.getId()).orElseThrow().getFirstName());
+    }
+
+    /**
+     * A repeatable read transaction that started before the update reads the old row after the update has
+     * committed, the same as a read that was slower than the update, and must not cache it.
+     */
+    @Test
+    void findById_shouldNotCacheOldRow_whenReadBeforeUpdateCommitted() {
+        UserEntity saved = userRepo.save(new UserEntity(null, "Old", "Race", "P", new Date(0)));
+        TransactionTemplate reader = new TransactionTemplate(transactionManager);
+        reader.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        reader.executeWithoutResult(status -> {
+            userRepo.count();
+            CompletableFuture.runAsync(() -> userRepo.updateNonNullFields(
+                    new User(saved.getId(), "New", null, null, null))).join();
+
+            assertEquals("Old", userRepo.findById(saved.getId()).orElseThrow().getFirstName());
+            assertEquals(1, userRepo.findByFirstNameAndLastName("Old", "Race").size());
+        });
+
+        assertEquals("New", userRepo.findById(saved.getId()).orElseThrow().getFirstName());
+        assertTrue(userRepo.findByFirstNameAndLastName("Old", "Race").isEmpty());
+    }
+
+    @Test
+    void findById_shouldUseSecondLevelCache_whenEntityWasLoadedBefore() {
+        UserEntity saved = userRepo.save(new UserEntity(null, "Cached", "Entity", "P", new Date(0)));
+        userRepo.findById(saved.getId());
+        userRepo.findById(saved.getId());
+
+        assertTrue(statistics.getDomainDataRegionStatistics(UserEntity.CACHE_REGION).getHitCount() > 0);
+    }
+
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package ru.evotor.userservice.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Explains the SQL that Hibernate generates for the finders, captured with a {@link StatementInspector}, so a
+ * finder change that loses its index fails here.
+ */
+@SpringBootTest(properties = {"user-service.index.name.enabled=false", "user-service.index.date-of-birth.enabled=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "ru.evotor.userservice.repository.UserRepoIndexTest$RecordingStatementInspector"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserRepoIndexTest {
+
+    private static final int SEEDED_USERS = 200_000;
+
+    private static final EmbeddedPostgres postgres = startPostgres();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @DynamicPropertySource
+    static void dataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeAll
+    void seedUsers() {
+        jdbcTemplate.update("insert into users(first_name, last_name, patronymic, date_of_birth) " +
+                "select 'First' || (g % 2000), 'Last' || (g % 20000), 'Patronymic' || (g % 1000), " +
+                "date '1940-01-01' + (g % 25000) " +
+                "from generate_series(1, ?) g", SEEDED_USERS);
+        jdbcTemplate.execute("analyze users");
+    }
+
+    static Stream<Arguments> finders() {
+        Date from = Date.valueOf("1970-01-01");
+        Date to = Date.valueOf("1970-01-10");
+        return Stream.of(
+                finder("findByLastName", repo -> repo.findByLastName("Last42"), "Last42"),
+                finder("findByFirstName", repo -> repo.findByFirstName("First42"), "First42"),
+                finder("findByPatronymic", repo -> repo.findByPatronymic("Patronymic42"), "Patronymic42"),
+                finder("findByFirstNameAndLastName",
+                        repo -> repo.findByFirstNameAndLastName("First42", "Last42"), "First42", "Last42"),
+                finder("findByFirstNameAndPatronymic",
+                        repo -> repo.findByFirstNameAndPatronymic("First42", "Patronymic42"),
+                        "First42", "Patronymic42"),
+                finder("findByFirstNameAndLastNameAndPatronymic",
+                        repo -> repo.findByFirstNameAndLastNameAndPatronymic("First42", "Last42", "Patronymic42"),
+                        "First42", "Last42", "Patronymic42"),
+                finder("findByDateOfBirthBetween", repo -> repo.findByDateOfBirthBetween(from, to), from, to),
+                finder("findByDateOfBirth", repo -> repo.findByDateOfBirth(from), from),
+                finder("countByDateOfBirthBetween", repo -> repo.countByDateOfBirthBetween(from, to), from, to),
+                finder("findByIdGreaterThanOrderByIdAsc",
+                        repo -> repo.findByIdGreaterThanOrderByIdAsc(1000L, PageRequest.of(0, 100)), 1000L, 100)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("finders")
+    void finderQuery_shouldNotUseSequentialScan_whenTableIsLarge(String name, Consumer<UserRepo> finder,
+                                                                 Object[] parameters) {
+        RecordingStatementInspector.statements.clear();
+        finder.accept(userRepo);
+        List<String> statements = RecordingStatementInspector.statements;
+        assertEquals(1, statements.size(), String.join("\n", statements));
+
+        List<String> plan = jdbcTemplate.queryForList("explain " + statements.get(0), String.class, parameters);
+
+        assertTrue(plan.stream().noneMatch(line -> line.contains("Seq Scan")),
+                statements.get(0) + "\n" + String.join("\n", plan));
+    }
+
+    private static Arguments finder(String name, Consumer<UserRepo> finder, Object... parameters) {
+        return Arguments.of(name, finder, parameters);
+    }
+
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        private static final long serialVersionUID = 1L;
+
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+}
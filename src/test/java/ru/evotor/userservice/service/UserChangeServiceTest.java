@@ -0,0 +1,126 @@
+package ru.evotor.userservice.service;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.evotor.userservice.exception.UserChangesCursorExpiredException;
+import ru.evotor.userservice.model.User;
+import ru.evotor.userservice.model.UserChange;
+import ru.evotor.userservice.model.UserChangeBatch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"user-service.index.name.enabled=false", "user-service.index.date-of-birth.enabled=false",
+        "user-service.changes.poll-interval-ms=50"})
+class UserChangeServiceTest {
+
+    private static final EmbeddedPostgres postgres = startPostgres();
+
+    @Autowired
+    private UserChangeService userChangeService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void dataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void awaitChanges_shouldReturnMutationsInOrder_andNothingAfterReturnedCursor() throws Exception {
+        String cursor = drain();
+
+        User user = userService.createUser(new User(null, "A", "B", "C", new Date(0)));
+        userService.updateUser(new User(user.getId(), "D", null, null, null));
+        userService.deleteUser(user.getId());
+
+        UserChangeBatch changes = userChangeService.awaitChanges(cursor, null, null).get();
+
+        assertEquals(List.of("INSERT", "UPDATE", "DELETE"),
+                changes.getChanges().stream().map(UserChange::getOperation).collect(Collectors.toList()));
+        assertTrue(changes.getChanges().stream().allMatch(change -> change.getUserId() == user.getId()));
+        assertTrue(userChangeService.awaitChanges(changes.getCursor(), null, null).get().getChanges().isEmpty());
+    }
+
+    @Test
+    void awaitChanges_shouldCompleteWhenChangeAppears_whenWaitIsGiven() throws Exception {
+        String cursor = drain();
+
+        CompletableFuture<UserChangeBatch> changes = userChangeService.awaitChanges(cursor, null, 30);
+        assertFalse(changes.isDone());
+
+        User user = userService.createUser(new User(null, "A", "B", "C", new Date(0)));
+
+        UserChangeBatch batch = changes.get(10, TimeUnit.SECONDS);
+        assertEquals(1, batch.getChanges().size());
+        assertEquals(user.getId(), batch.getChanges().get(0).getUserId());
+    }
+
+    @Test
+    void awaitChanges_shouldReturnEmptyBatchWithSameCursor_whenWaitIsOver() throws Exception {
+        String cursor = drain();
+
+        UserChangeBatch batch = userChangeService.awaitChanges(cursor, null, 1).get(10, TimeUnit.SECONDS);
+
+        assertTrue(batch.getChanges().isEmpty());
+        assertEquals(cursor, batch.getCursor());
+    }
+
+    @Test
+    void awaitChanges_shouldThrowCursorExpired_whenChangesAfterCursorWereDeleted() throws Exception {
+        userService.createUser(new User(null, "A", "B", "C", new Date(0)));
+        String cursor = drain();
+        userService.createUser(new User(null, "A", "B", "C", new Date(0)));
+        User kept = userService.createUser(new User(null, "D", "E", "F", new Date(0)));
+        jdbcTemplate.update("delete from user_changes where user_id < ?", kept.getId());
+
+        assertThrows(UserChangesCursorExpiredException.class, () -> userChangeService.awaitChanges(cursor, null, null));
+        assertTrue(userChangeService.awaitChanges(null, null, null).get().getChanges().stream()
+                .anyMatch(change -> change.getUserId() == kept.getId()));
+    }
+
+    @Test
+    void awaitChanges_shouldThrowException_whenCursorIsMalformed() {
+        assertThrows(IllegalArgumentException.class, () -> userChangeService.awaitChanges("abc", null, null));
+    }
+
+    private String drain() throws Exception {
+        UserChangeBatch batch = userChangeService.awaitChanges(null, 1000, null).get();
+        while (!batch.getChanges().isEmpty()) {
+            batch = userChangeService.awaitChanges(batch.getCursor(), 1000, null).get();
+        }
+        return batch.getCursor();
+    }
+
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
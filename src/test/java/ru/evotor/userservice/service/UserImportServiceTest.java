@@ -0,0 +1,168 @@
+package ru.evotor.userservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.evotor.userservice.model.ImportProgress;
+import ru.evotor.userservice.model.ImportReport;
+import ru.evotor.userservice.repository.UserHibernateCache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserImportServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private final UserHibernateCache userHibernateCache = mock(UserHibernateCache.class);
+
+    private final UserSearchesCache userSearchesCache = mock(UserSearchesCache.class);
+
+    private UserImportService userImportService;
+
+    @BeforeEach
+    void setUp() {
+        userImportService = new UserImportService(jdbcTemplate, 2, List.of(), userHibernateCache, userSearchesCache);
+
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any())).thenReturn(List.of(50L), List.of(100L));
+        when(userHibernateCache.write(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+    }
+
+    @Test
+    void importUsers_shouldWriteRowsInBatches_whenAllRowsAreValid() throws IOException {
+        String csv = "first_name,last_name,patronymic,date_of_birth\n" +
+                "Petr,Petrov,Petrovich,1970-07-11\n" +
+                "Ivan,Ivanov,Ivanovich,1974-07-15\n" +
+                "Semen,Collega,Petrovich,2018-09-27\n";
+
+        ImportReport report = userImportService.importUsers(toStream(csv));
+
+        assertEquals(3, report.getImportedRows());
+        assertEquals(0, report.getRejectedRows());
+        assertEquals(2, report.getBatches());
+        verify(userHibernateCache, times(2)).write(any());
+        verify(userSearchesCache, times(2)).evict();
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList(), any(int[].class));
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Long.class), any());
+    }
+
+    @Test
+    void importUsers_shouldReturnReportWithError_whenBatchFails() throws IOException {
+        String csv = "Petr,Petrov,Petrovich,1970-07-11\n" +
+                "Ivan,Ivanov,Ivanovich,1974-07-15\n" +
+                "Semen,Collega,Petrovich,2018-09-27\n" +
+                "Anna,Ivanova,Ivanovna,1980-01-02\n" +
+                "Olga,Petrova,Petrovna,1990-03-04\n";
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), any(int[].class)))
+                .thenReturn(new int[]{1, 1})
+                .thenThrow(new QueryTimeoutException("timeout"));
+
+        ImportReport report = userImportService.importUsers(toStream(csv));
+
+        assertEquals(2, report.getImportedRows());
+        assertEquals(1, report.getBatches());
+        assertEquals("Batch 2 could not be written to the database", report.getError());
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList(), any(int[].class));
+        verify(userHibernateCache, times(2)).write(any());
+    }
+
+    @Test
+    void importUsers_shouldReserveIdBlocksOfBatchInOneQuery() throws IOException {
+        userImportService = new UserImportService(jdbcTemplate, 120, List.of(), userHibernateCache,
+                userSearchesCache);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any())).thenReturn(List.of(50L, 100L, 150L));
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 120; i++) {
+            csv.append("Petr,Petrov,Petrovich,1970-07-11\n");
+        }
+
+        ImportReport report = userImportService.importUsers(toStream(csv.toString()));
+
+        assertEquals(120, report.getImportedRows());
+        assertNull(report.getError());
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Long.class), eq(3));
+    }
+
+    @Test
+    void importUsers_shouldRejectRows_whenRowsViolateTableConstraints() throws IOException {
+        String csv = "Petr,Petrov,Petrovich,1970-07-11\n" +
+                "Petr,,Petrovich,1970-07-11\n" +
+                "Petr,Petrov,Petrovich\n" +
+                "Petr,Petrov,Petrovich,11.07.1970\n";
+
+        ImportReport report = userImportService.importUsers(toStream(csv));
+
+        assertEquals(1, report.getImportedRows());
+        assertEquals(3, report.getRejectedRows());
+        assertEquals(2, report.getRejected().get(0).getLine());
+        assertEquals(3, report.getRejected().get(1).getLine());
+        assertEquals(4, report.getRejected().get(2).getLine());
+    }
+
+    @Test
+    void importUsers_shouldKeepLineBreak_whenQuotedColumnSpansLines() throws IOException {
+        String csv = "\"Anna\nMaria\",Ivanova,Ivanovna,1980-01-02\n" +
+                "Petr,\"Petrov\r\n\",Petrovich,1970-07-11\n" +
+                "Petr,Petrov,Petrovich,11.07.1970\n";
+
+        ImportReport report = userImportService.importUsers(toStream(csv));
+
+        assertEquals(2, report.getImportedRows());
+        assertEquals(1, report.getRejectedRows());
+        assertEquals(5, report.getRejected().get(0).getLine());
+        verify(jdbcTemplate).batchUpdate(anyString(),
+                argThat((List<Object[]> rows) -> rows.get(0)[1].equals("Anna\nMaria")), any(int[].class));
+    }
+
+    @Test
+    void importUsers_shouldRejectOnlyOneRecord_whenQuoteIsNeverClosed() throws IOException {
+        StringBuilder csv = new StringBuilder("\"Petr,Petrov,Petrovich,1970-07-11\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append("Petr,Petrov,Petrovich,1970-07-11\n");
+        }
+
+        ImportReport report = userImportService.importUsers(toStream(csv.toString()));
+
+        assertEquals(1, report.getRejectedRows());
+        assertEquals(1, report.getRejected().get(0).getLine());
+        assertTrue(report.getImportedRows() > 900);
+    }
+
+    @Test
+    void importUsers_shouldReportProgress_afterEveryBatch() throws IOException {
+        String csv = "Petr,Petrov,Petrovich,1970-07-11\n" +
+                "Petr,,Petrovich,1970-07-11\n" +
+                "Ivan,Ivanov,Ivanovich,1974-07-15\n" +
+                "Semen,Collega,Petrovich,2018-09-27\n";
+        List<ImportProgress> progress = new ArrayList<>();
+
+        userImportService.importUsers(toStream(csv), progress::add);
+
+        assertEquals(2, progress.size());
+        assertEquals(2, progress.get(0).getImportedRows());
+        assertEquals(1, progress.get(0).getRejectedRows());
+        assertEquals(3, progress.get(1).getImportedRows());
+        assertEquals(2, progress.get(1).getBatches());
+    }
+
+    @Test
+    void parseRow_shouldUnquoteColumns_whenColumnsAreQuoted() {
+        Object[] row = UserImportService.parseRow("\"Anna, Maria\",\"O\"\"Brien\",Ivanovna,1980-01-02");
+
+        assertArrayEquals(new Object[]{"Anna, Maria", "O\"Brien", "Ivanovna", Date.valueOf("1980-01-02")}, row);
+    }
+
+    private static ByteArrayInputStream toStream(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
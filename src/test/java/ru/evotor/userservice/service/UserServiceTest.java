@@ -1,13 +1,19 @@
 package ru.evotor.userservice.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.mockito.Mockito.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
 import ru.evotor.userservice.entity.UserEntity;
-import ru.evotor.userservice.exception.UserNotFoundException;
+import ru.evotor.userservice.exception.UserVersionConflictException;
+import ru.evotor.userservice.metrics.UserMetricsAspect;
 import ru.evotor.userservice.model.User;
+import ru.evotor.userservice.model.UserBatch;
 import ru.evotor.userservice.repository.UserRepo;
 import ru.evotor.userservice.wrapper.DateRange;
 import ru.evotor.userservice.wrapper.FullName;
@@ -19,23 +25,34 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@SpringBootTest
+@SpringBootTest(properties = {"user-service.index.name.enabled=false", "user-service.index.date-of-birth.enabled=false"})
 class UserServiceTest {
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockBean
     private UserRepo userRepo;
 
+    @BeforeEach
+    void clearCaches() {
+        cacheManager.getCacheNames().forEach(cacheName -> cacheManager.getCache(cacheName).clear());
+    }
+
     @Test
-    void getAllUsers_shouldThrowException_whenNoUsersInDataBase() {
+    void getAllUsers_shouldReturnEmptyList_whenNoUsersInDataBase() {
         when(userRepo.findAll()).thenReturn(new ArrayList<>());
-        assertThrows(UserNotFoundException.class, () -> userService.getAllUsers());
+        assertTrue(userService.getAllUsers().isEmpty());
     }
 
     @Test
-    void getAllUsers_shouldReturnListWithSizeEqualsOne_whenOneUserInDataBase() throws UserNotFoundException {
+    void getAllUsers_shouldReturnListWithSizeEqualsOne_whenOneUserInDataBase() {
         List<UserEntity> oneUserList = new ArrayList<>();
         oneUserList.add(
                 new UserEntity(1L, "A", "B", "C", new Date(2021)));
@@ -48,8 +65,7 @@ class UserServiceTest {
     }
 
     @Test
-    void getAllUsers_shouldReturnListWithSizeEqualsNumberOfUsers_whenMultipleUsersInDataBase() throws
-            UserNotFoundException {
+    void getAllUsers_shouldReturnListWithSizeEqualsNumberOfUsers_whenMultipleUsersInDataBase() {
         List<UserEntity> oneUserList = new ArrayList<>();
         oneUserList.add(
                 new UserEntity(1L, "A", "B", "C", new Date(2021)));
@@ -68,32 +84,175 @@ class UserServiceTest {
     }
 
     @Test
-    void getUserById_shouldThrowException_whenNoUserWithIdInDataBase() {
+    void getUsersPage_shouldThrowException_whenLimitIsOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersPage(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersPage(null, 1001));
+    }
+
+    @Test
+    void getUsersPage_shouldReturnUsersAfterGivenId_whenAfterIdIsGiven() {
+        List<User> repositoryOutput = new ArrayList<>();
+        repositoryOutput.add(new User(6L, "A", "B", "C", new Date(2021)));
+        when(userRepo.findByIdGreaterThanOrderByIdAsc(5L, PageRequest.of(0, 1))).thenReturn(repositoryOutput);
+
+        List<User> expected = new ArrayList<>();
+        expected.add(new User(6L, "A", "B", "C", new Date(2021)));
+
+        assertEquals(expected, userService.getUsersPage(5L, 1));
+    }
+
+    @Test
+    void getUserById_shouldReturnEmpty_whenNoUserWithIdInDataBase() {
         Long id = 1L;
         when(userRepo.findById(id)).thenReturn(Optional.empty());
 
-        assertThrows(UserNotFoundException.class, () -> userService.getUserById(id));
+        assertEquals(Optional.empty(), userService.getUserById(id));
+    }
+
+    @Test
+    void getUserById_shouldRecordNotFoundTimer_whenNoUserWithIdInDataBase() {
+        Long id = 1L;
+        when(userRepo.findById(id)).thenReturn(Optional.empty());
+        double before = notFoundCount();
+
+        userService.getUserById(id);
+
+        assertEquals(before + 1, notFoundCount());
+    }
+
+    private double notFoundCount() {
+        return meterRegistry.timer(UserMetricsAspect.SERVICE_METRIC,
+                "method", "getUserById", "outcome", "not_found").count();
+    }
+
+    @Test
+    void getUserById_shouldReadRepositoryOnce_whenMissingUserRequestedTwice() {
+        Long id = 1L;
+        when(userRepo.findById(id)).thenReturn(Optional.empty());
+
+        userService.getUserById(id);
+
+        assertEquals(Optional.empty(), userService.getUserById(id));
+        verify(userRepo, times(1)).findById(id);
+    }
+
+    @Test
+    void getUserById_shouldReturnCreatedUser_whenMissWasCachedBeforeCreation() {
+        Long id = 1L;
+        when(userRepo.findById(id))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new UserEntity(id, "A", "B", "C", new Date(2000))));
+        when(userRepo.save(any(UserEntity.class))).thenReturn(new UserEntity(id, "A", "B", "C", new Date(2000)));
+
+        userService.getUserById(id);
+        userService.createUser(new User(null, "A", "B", "C", new Date(2000)));
+
+        assertEquals(Optional.of(new User(id, "A", "B", "C", new Date(2000))), userService.getUserById(id));
     }
 
     @Test
-    void getUserById_shouldReturnUser_whenThereIsUserWithIdInDataBase() throws UserNotFoundException {
+    void getUserById_shouldReturnUser_whenThereIsUserWithIdInDataBase() {
         Long id = 1L;
         when(userRepo.findById(id))
                 .thenReturn(Optional.of(new UserEntity(id, "A", "B", "C", new Date(2000))));
 
         User expected = new User(id, "A", "B", "C", new Date(2000));
 
-        assertEquals(expected, userService.getUserById(id));
+        assertEquals(Optional.of(expected), userService.getUserById(id));
+    }
+
+    @Test
+    void getUserById_shouldReadRepositoryOnce_whenUserRequestedTwice() {
+        Long id = 1L;
+        when(userRepo.findById(id))
+                .thenReturn(Optional.of(new UserEntity(id, "A", "B", "C", new Date(2000))));
+
+        userService.getUserById(id);
+        userService.getUserById(id);
+
+        verify(userRepo, times(1)).findById(id);
+    }
+
+    @Test
+    void getUserById_shouldReadRepositoryAgain_whenUserDeletedAfterCaching() {
+        Long id = 1L;
+        when(userRepo.findById(id))
+                .thenReturn(Optional.of(new UserEntity(id, "A", "B", "C", new Date(2000))));
+        when(userRepo.deleteUserById(id)).thenReturn(1);
+
+        userService.getUserById(id);
+        userService.deleteUser(id);
+        userService.getUserById(id);
+
+        verify(userRepo, times(2)).findById(id);
+    }
+
+    @Test
+    void getUserById_shouldReturnUpdatedUser_whenUserUpdatedAfterCaching() {
+        Long id = 1L;
+        User update = new User(id, "D", null, null, null);
+        when(userRepo.findById(id))
+                .thenReturn(Optional.of(new UserEntity(id, "A", "B", "C", new Date(2000))))
+                .thenReturn(Optional.of(new UserEntity(id, "D", "B", "C", new Date(2000))));
+        when(userRepo.updateNonNullFields(update))
+                .thenReturn(Optional.of(new User(id, "D", "B", "C", new Date(2000))));
+
+        userService.getUserById(id);
+        userService.updateUser(update);
+
+        assertEquals(Optional.of(new User(id, "D", "B", "C", new Date(2000))), userService.getUserById(id));
+    }
+
+    @Test
+    void getUsersByIds_shouldKeepRequestOrderAndReportMissingIds() {
+        when(userRepo.findUsersByIdIn(anyCollection())).thenReturn(List.of(
+                new User(1L, "A", "B", "C", new Date(0)),
+                new User(3L, "D", "E", "F", new Date(0))));
+
+        UserBatch userBatch = userService.getUsersByIds(List.of(3L, 2L, 1L, 3L));
+
+        assertEquals(List.of(new User(3L, "D", "E", "F", new Date(0)), new User(1L, "A", "B", "C", new Date(0))),
+                userBatch.getUsers());
+        assertEquals(List.of(2L), userBatch.getMissingIds());
     }
 
     @Test
-    void getUsersByFullNameParts_shouldThrowException_whenNoSuchUserInDataBaseByFirstName() {
+    void getUsersByIds_shouldQueryOnlyUncachedIds_whenSomeUsersAreCached() {
+        when(userRepo.findById(1L)).thenReturn(Optional.of(new UserEntity(1L, "A", "B", "C", new Date(0))));
+        when(userRepo.findUsersByIdIn(List.of(2L))).thenReturn(List.of(new User(2L, "D", "E", "F", new Date(0))));
+        userService.getUserById(1L);
+
+        UserBatch userBatch = userService.getUsersByIds(List.of(1L, 2L));
+        userService.getUsersByIds(List.of(1L, 2L));
+
+        assertEquals(2, userBatch.getUsers().size());
+        verify(userRepo, times(2)).findUsersByIdIn(anyCollection());
+    }
+
+    @Test
+    void getUsersByIds_shouldNotCacheLoadedUsers_soConcurrentEvictionCanNotBeOvertaken() {
+        when(userRepo.findUsersByIdIn(List.of(1L))).thenReturn(List.of(new User(1L, "A", "B", "C", new Date(0))));
+        when(userRepo.findById(1L)).thenReturn(Optional.of(new UserEntity(1L, "D", "B", "C", new Date(0))));
+
+        userService.getUsersByIds(List.of(1L));
+
+        assertEquals(Optional.of(new User(1L, "D", "B", "C", new Date(0))), userService.getUserById(1L));
+        verify(userRepo).findById(1L);
+    }
+
+    @Test
+    void getUsersByIds_shouldThrowException_whenIdsListIsEmpty() {
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersByIds(List.of()));
+    }
+
+    @Test
+    void getUsersByFullNameParts_shouldReturnEmptyList_whenNoSuchUserInDataBaseByFirstName() {
         String firstName = "First Name";
         when(userRepo.findByFirstName(firstName)).thenReturn(new ArrayList<>());
 
         FullName inputFullName = new FullName(firstName, null, null);
 
-        assertThrows(UserNotFoundException.class, () -> userService.getUsersByFullNameParts(inputFullName));
+        assertTrue(userService.getUsersByFullNameParts(inputFullName).isEmpty());
     }
 
     @Test
@@ -104,13 +263,12 @@ class UserServiceTest {
     }
 
     @Test
-    void getUsersByFullNameParts_shouldUseFirstNameRepositoryMethod_whenInputHasOnlyFirstName() throws
-            UserNotFoundException {
+    void getUsersByFullNameParts_shouldUseFirstNameRepositoryMethod_whenInputHasOnlyFirstName() {
         String firstName = "FirstName";
         FullName fullName = new FullName(firstName, null, null);
 
-        List<UserEntity> expectedRepositoryOutput = new ArrayList<>();
-        expectedRepositoryOutput.add(new UserEntity());
+        List<User> expectedRepositoryOutput = new ArrayList<>();
+        expectedRepositoryOutput.add(new User());
         when(userRepo.findByFirstName(firstName)).thenReturn(expectedRepositoryOutput);
 
         userService.getUsersByFullNameParts(fullName);
@@ -118,13 +276,12 @@ class UserServiceTest {
     }
 
     @Test
-    void getUsersByFullNameParts_shouldUseLastNameRepositoryMethod_whenInputHasOnlyLastName() throws
-            UserNotFoundException {
+    void getUsersByFullNameParts_shouldUseLastNameRepositoryMethod_whenInputHasOnlyLastName() {
         String lastName = "LastName";
         FullName fullName = new FullName(null, lastName, null);
 
-        List<UserEntity> expectedRepositoryOutput = new ArrayList<>();
-        expectedRepositoryOutput.add(new UserEntity(1L, "f", lastName, "p", new Date(0)));
+        List<User> expectedRepositoryOutput = new ArrayList<>();
+        expectedRepositoryOutput.add(new User(1L, "f", lastName, "p", new Date(0)));
         when(userRepo.findByLastName(lastName)).thenReturn(expectedRepositoryOutput);
 
         userService.getUsersByFullNameParts(fullName);
@@ -132,13 +289,12 @@ class UserServiceTest {
     }
 
     @Test
-    void getUsersByFullNameParts_shouldUsePatronymicRepositoryMethod_whenInputHasOnlyPatronymic() throws
-            UserNotFoundException {
+    void getUsersByFullNameParts_shouldUsePatronymicRepositoryMethod_whenInputHasOnlyPatronymic() {
         String patronymic = "Patronymic";
         FullName fullName = new FullName(null, null, patronymic);
 
-        List<UserEntity> expectedRepositoryOutput = new ArrayList<>();
-        expectedRepositoryOutput.add(new UserEntity(1L, "f", "l", patronymic, new Date(0)));
+        List<User> expectedRepositoryOutput = new ArrayList<>();
+        expectedRepositoryOutput.add(new User(1L, "f", "l", patronymic, new Date(0)));
         when(userRepo.findByPatronymic(patronymic)).thenReturn(expectedRepositoryOutput);
 
         userService.getUsersByFullNameParts(fullName);
@@ -147,13 +303,13 @@ class UserServiceTest {
 
     @Test
     void getUsersByFullNameParts_shouldUseFirstNameAndLastNameRepositoryMethod_whenInputHasOnlyFirstNameAndLastName()
-            throws UserNotFoundException {
+            {
         String firstName = "FirstName";
         String lastName = "LastName";
         FullName fullName = new FullName(firstName, lastName, null);
 
-        List<UserEntity> expectedRepositoryOutput = new ArrayList<>();
-        expectedRepositoryOutput.add(new UserEntity(1L, firstName, lastName, "p", new Date(0)));
+        List<User> expectedRepositoryOutput = new ArrayList<>();
+        expectedRepositoryOutput.add(new User(1L, firstName, lastName, "p", new Date(0)));
         when(userRepo.findByFirstNameAndLastName(firstName, lastName)).thenReturn(expectedRepositoryOutput);
 
         userService.getUsersByFullNameParts(fullName);
@@ -162,13 +318,13 @@ class UserServiceTest {
 
     @Test
     void getUsersByFullNameParts_shouldUseFirstNameAndPatronymicRepositoryMethod_whenInputHasOnlyFirstNameAndPatronymic()
-            throws UserNotFoundException {
+            {
         String firstName = "FirstName";
         String patronymic = "Patronymic";
         FullName fullName = new FullName(firstName, null, patronymic);
 
-        List<UserEntity> expectedRepositoryOutput = new ArrayList<>();
-        expectedRepositoryOutput.add(new UserEntity(1L, firstName, null, patronymic, new Date(0)));
+        List<User> expectedRepositoryOutput = new ArrayList<>();
+        expectedRepositoryOutput.add(new User(1L, firstName, null, patronymic, new Date(0)));
         when(userRepo.findByFirstNameAndPatronymic(firstName, patronymic)).thenReturn(expectedRepositoryOutput);
 
         userService.getUsersByFullNameParts(fullName);
@@ -177,14 +333,14 @@ class UserServiceTest {
 
     @Test
     void getUsersByFullNameParts_shouldUseAllFullNameFieldsRepositoryMethod_whenInputHasAllFullNameFields()
-            throws UserNotFoundException {
+            {
         String firstName = "FirstName";
         String lastName = "LastName";
         String patronymic = "Patronymic";
         FullName fullName = new FullName(firstName, lastName, patronymic);
 
-        List<UserEntity> expectedRepositoryOutput = new ArrayList<>();
-        expectedRepositoryOutput.add(new UserEntity(1L, firstName, lastName, patronymic, new Date(0)));
+        List<User> expectedRepositoryOutput = new ArrayList<>();
+        expectedRepositoryOutput.add(new User(1L, firstName, lastName, patronymic, new Date(0)));
         when(userRepo.findByFirstNameAndLastNameAndPatronymic(firstName, lastName, patronymic))
                 .thenReturn(expectedRepositoryOutput);
 
@@ -193,6 +349,18 @@ class UserServiceTest {
                 .findByFirstNameAndLastNameAndPatronymic(firstName, lastName, patronymic);
     }
 
+    @Test
+    void searchUsersByName_shouldThrowException_whenQueryIsBlank() {
+        assertThrows(IllegalArgumentException.class, () -> userService.searchUsersByName("  ", null));
+    }
+
+    @Test
+    void searchUsersByName_shouldSearchNormalizedQuery_whenQueryHasMixedCaseAndSpaces() {
+        userService.searchUsersByName("  Petrov   PETR ", 5);
+
+        verify(userRepo, times(1)).searchByName("petrov petr", 5);
+    }
+
     @Test
     void getUsersByDateOfBirthRange_shouldThrowException_whenDateFromAndDateToAreNull() {
         DateRange dateRange =  new DateRange();
@@ -203,7 +371,7 @@ class UserServiceTest {
     }
 
     @Test
-    void getUsersByDateOfBirthRange_shouldThrowException_whenNoSuchUserInDataBase() {
+    void getUsersByDateOfBirthRange_shouldReturnEmptyList_whenNoSuchUserInDataBase() {
         Date dateFrom = new Date(2000);
         Date dateTo = new Date(2001);
         DateRange dateRange =  new DateRange();
@@ -212,20 +380,19 @@ class UserServiceTest {
 
         when(userRepo.findByDateOfBirthBetween(dateFrom, dateTo)).thenReturn(new ArrayList<>());
 
-        assertThrows(UserNotFoundException.class, () -> userService.getUsersByDateOfBirthRange(dateRange));
+        assertTrue(userService.getUsersByDateOfBirthRange(dateRange).isEmpty());
     }
 
     @Test
-    void getUsersByDateOfBirthRange_shouldUseBetweenMethod_whenBothDateRangeParametersAreNotNull() throws
-            UserNotFoundException {
+    void getUsersByDateOfBirthRange_shouldUseBetweenMethod_whenBothDateRangeParametersAreNotNull() {
         Date dateFrom = new Date(2000);
         Date dateTo = new Date(2002);
         DateRange dateRange =  new DateRange();
         dateRange.setDateFrom(dateFrom);
         dateRange.setDateTo(dateTo);
 
-        List<UserEntity> repositoryOutput = new ArrayList<>();
-        repositoryOutput.add(new UserEntity(1L, "f", "l", "p", new Date(2001)));
+        List<User> repositoryOutput = new ArrayList<>();
+        repositoryOutput.add(new User(1L, "f", "l", "p", new Date(2001)));
         when(userRepo.findByDateOfBirthBetween(dateFrom, dateTo)).thenReturn(repositoryOutput);
 
         userService.getUsersByDateOfBirthRange(dateRange);
@@ -233,15 +400,14 @@ class UserServiceTest {
     }
 
     @Test
-    void getUsersByDateOfBirthRange_shouldUseSingleDateMethod_whenDateFromNotNullAndDateToIsNull() throws
-            UserNotFoundException {
+    void getUsersByDateOfBirthRange_shouldUseSingleDateMethod_whenDateFromNotNullAndDateToIsNull() {
         Date dateFrom = new Date(2000);
         DateRange dateRange =  new DateRange();
         dateRange.setDateFrom(dateFrom);
         dateRange.setDateTo(null);
 
-        List<UserEntity> repositoryOutput = new ArrayList<>();
-        repositoryOutput.add(new UserEntity(1L, "f", "l", "p", new Date(2000)));
+        List<User> repositoryOutput = new ArrayList<>();
+        repositoryOutput.add(new User(1L, "f", "l", "p", new Date(2000)));
         when(userRepo.findByDateOfBirth(dateFrom)).thenReturn(repositoryOutput);
 
         userService.getUsersByDateOfBirthRange(dateRange);
@@ -249,15 +415,14 @@ class UserServiceTest {
     }
 
     @Test
-    void getUsersByDateOfBirthRange_shouldUseSingleDateMethod_whenDateToNotNullAndDateFromIsNull() throws
-            UserNotFoundException {
+    void getUsersByDateOfBirthRange_shouldUseSingleDateMethod_whenDateToNotNullAndDateFromIsNull() {
         Date dateTo = new Date(2002);
         DateRange dateRange =  new DateRange();
         dateRange.setDateFrom(null);
         dateRange.setDateTo(dateTo);
 
-        List<UserEntity> repositoryOutput = new ArrayList<>();
-        repositoryOutput.add(new UserEntity(1L, "f", "l", "p", new Date(2002)));
+        List<User> repositoryOutput = new ArrayList<>();
+        repositoryOutput.add(new User(1L, "f", "l", "p", new Date(2002)));
         when(userRepo.findByDateOfBirth(dateTo)).thenReturn(repositoryOutput);
 
         userService.getUsersByDateOfBirthRange(dateRange);
@@ -265,26 +430,128 @@ class UserServiceTest {
     }
 
     @Test
-    void updateUser_shouldThrowException_whenNoUserWithInputIdInDataBase() {
+    void getUsersByDateOfBirthRange_shouldReturnCachedResult_whenSameDateIsGivenAsEitherBound() {
+        Date date = new Date(2000);
+        when(userRepo.findByDateOfBirth(date)).thenReturn(List.of(new User(1L, "f", "l", "p", date)));
+
+        userService.getUsersByDateOfBirthRange(new DateRange(date, null));
+        userService.getUsersByDateOfBirthRange(new DateRange(null, date));
+        userService.getUsersByDateOfBirthRange(new DateRange(date, date));
+
+        verify(userRepo, times(1)).findByDateOfBirth(date);
+    }
+
+    @Test
+    void streamUsersByFullNameParts_shouldStreamByLastNameOnly_whenLastNameAndPatronymicAreGiven() {
+        List<User> users = new ArrayList<>();
+
+        userService.streamUsersByFullNameParts(new FullName(null, "l", "p"), users::add);
+
+        verify(userRepo, times(1)).streamByNameParts(isNull(), eq("l"), isNull(), any());
+    }
+
+    @Test
+    void streamUsersByFullNameParts_shouldThrowException_whenGivenPartIsBlank() {
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.streamUsersByFullNameParts(new FullName("f", " ", null), user -> { }));
+        verify(userRepo, never()).streamByNameParts(any(), any(), any(), any());
+    }
+
+    @Test
+    void getUsersByFullNameParts_shouldSearchAgain_whenUserWasDeletedAfterCachedSearch() {
+        FullName fullName = new FullName("f", null, null);
+        when(userRepo.findByFirstName("f")).thenReturn(List.of(new User(1L, "f", "l", "p", new Date(0))));
+        when(userRepo.deleteUserById(1L)).thenReturn(1);
+
+        userService.getUsersByFullNameParts(fullName);
+        userService.getUsersByFullNameParts(new FullName("f", null, null));
+        userService.deleteUser(1L);
+        userService.getUsersByFullNameParts(fullName);
+
+        verify(userRepo, times(2)).findByFirstName("f");
+    }
+
+    @Test
+    void getUsersByFullNameParts_shouldNotServeResultOfSearch_whenUserWasDeletedWhileSearching() {
+        FullName fullName = new FullName("f", null, null);
+        when(userRepo.deleteUserById(1L)).thenReturn(1);
+        when(userRepo.findByFirstName("f"))
+                .thenAnswer(invocation -> {
+                    List<User> oldResult = List.of(new User(1L, "f", "l", "p", new Date(0)));
+                    userService.deleteUser(1L);
+                    return oldResult;
+                })
+                .thenReturn(List.of());
+
+        assertEquals(1, userService.getUsersByFullNameParts(fullName).size());
+        assertTrue(userService.getUsersByFullNameParts(fullName).isEmpty());
+
+        verify(userRepo, times(2)).findByFirstName("f");
+    }
+
+    @Test
+    void countUsersByDateOfBirthRange_shouldCountSingleDate_whenDateToIsNull() {
+        Date dateFrom = new Date(2000);
+        DateRange dateRange =  new DateRange();
+        dateRange.setDateFrom(dateFrom);
+
+        when(userRepo.countByDateOfBirthBetween(dateFrom, dateFrom)).thenReturn(3L);
+
+        assertEquals(3L, userService.countUsersByDateOfBirthRange(dateRange));
+        verify(userRepo, never()).findByDateOfBirth(any());
+    }
+
+    @Test
+    void updateUser_shouldReturnEmpty_whenNoUserWithInputIdInDataBase() {
         Long id = 1L;
         User user = new User(id, "f", "l", "p",  new Date(2002));
 
-        when(userRepo.findById(id)).thenReturn(Optional.empty());
+        when(userRepo.updateNonNullFields(user)).thenReturn(Optional.empty());
+
+        assertEquals(Optional.empty(), userService.updateUser(user));
+    }
+
+    @Test
+    void updateUser_shouldThrowConflictException_whenUserVersionChanged() {
+        Long id = 1L;
+        User user = new User(id, "f", "l", "p",  new Date(2002), 3L);
 
-        assertThrows(UserNotFoundException.class, () -> userService.updateUser(user));
+        when(userRepo.updateNonNullFields(user)).thenReturn(Optional.empty());
+        when(userRepo.existsById(id)).thenReturn(true);
+
+        assertThrows(UserVersionConflictException.class, () -> userService.updateUser(user));
     }
 
     @Test
-    void updateUser_shouldReturnUpdatedUser_whenInputHasFieldsToUpdate() throws UserNotFoundException {
+    void updateUser_shouldReturnUpdatedUser_whenInputHasFieldsToUpdate() {
         Long id = 1L;
         User user = new User(id, "f", null, "p",  new Date(2002));
 
-        when(userRepo.findById(user.getId()))
-                .thenReturn(Optional.of(
-                        new UserEntity(id, "fff", "lll", "ppp",  new Date(2001))));
+        User expected = new User(id, "f", "lll", "p",  new Date(2002), 1L);
+        when(userRepo.updateNonNullFields(user)).thenReturn(Optional.of(expected));
+
+        assertEquals(Optional.of(expected), userService.updateUser(user));
+        verify(userRepo, never()).findById(id);
+    }
+
+    @Test
+    void deleteUser_shouldReturnEmpty_whenNoUserWithIdInDataBase() {
+        Long id = 1L;
+        when(userRepo.deleteUserById(id)).thenReturn(0);
 
-        User expected = new User(id, "f", "lll", "p",  new Date(2002));
+        assertEquals(Optional.empty(), userService.deleteUser(id));
+        verify(userRepo, never()).findById(id);
+    }
 
-        assertEquals(expected, userService.updateUser(user));
+    @Test
+    void deleteUsers_shouldDeleteInChunks_whenIdsListIsLarge() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 2500; id++) {
+            ids.add(id);
+        }
+        when(userRepo.deleteUsersByIdIn(anyCollection())).thenReturn(1000, 1000, 400);
+
+        assertEquals(2400, userService.deleteUsers(ids));
+        verify(userRepo, times(3)).deleteUsersByIdIn(anyCollection());
     }
 }
@@ -0,0 +1,54 @@
+package ru.evotor.userservice.service;
+
+import org.junit.jupiter.api.Test;
+import ru.evotor.userservice.index.DateOfBirthIndex;
+import ru.evotor.userservice.model.User;
+import ru.evotor.userservice.repository.UserRepo;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserStatisticsServiceTest {
+
+    private final UserRepo userRepo = mock(UserRepo.class);
+
+    private final DateOfBirthIndex dateOfBirthIndex = new DateOfBirthIndex(true);
+
+    private final UserStatisticsService userStatisticsService = new UserStatisticsService(userRepo, dateOfBirthIndex);
+
+    @Test
+    void countUsersByAgeBand_shouldCountFromIndex_whenIndexIsReady() {
+        LocalDate today = LocalDate.now();
+        dateOfBirthIndex.put(user(1L, today.minusYears(18)));
+        dateOfBirthIndex.put(user(2L, today.minusYears(18).plusDays(1)));
+        dateOfBirthIndex.put(user(3L, today.minusYears(70)));
+        dateOfBirthIndex.markReady();
+
+        Map<String, Long> countsByAgeBand = userStatisticsService.countUsersByAgeBand(List.of(18, 65));
+
+        assertEquals(List.of("0-17", "18-64", "65+"), List.copyOf(countsByAgeBand.keySet()));
+        assertEquals(List.of(1L, 1L, 1L), List.copyOf(countsByAgeBand.values()));
+        verifyNoInteractions(userRepo);
+    }
+
+    @Test
+    void countUsersByAgeBand_shouldThrowException_whenBoundsAreNotAscending() {
+        assertThrows(IllegalArgumentException.class, () -> userStatisticsService.countUsersByAgeBand(List.of(30, 18)));
+    }
+
+    @Test
+    void countUsersByYearOfBirth_shouldGroupInDatabase_whenIndexIsNotReady() {
+        when(userRepo.countAllByYearOfBirth()).thenReturn(List.of(new Object[]{1970, 2L}, new Object[]{1980, 5L}));
+
+        assertEquals(Map.of(1970, 2L, 1980, 5L), userStatisticsService.countUsersByYearOfBirth());
+    }
+
+    private static User user(Long id, LocalDate dateOfBirth) {
+        return new User(id, "f", "l", "p", Date.valueOf(dateOfBirth), 0L);
+    }
+}